@@ -0,0 +1,124 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare le surcoût par requête de l'ancien appel (un HttpURLConnection par requête,
+ * bloquant) avec GeminiClient (HttpClient partagé, en bloquant puis avec generateAsync)
+ * sous charge concurrente.
+ * Le serveur local est en HTTP clair : l'établissement TLS, que la réutilisation des
+ * connexions évite face à la vraie API, n'apparaît donc pas dans ces chiffres.
+ *
+ * Lancement : mvn -Pbench compile exec:exec -Dbench.main=org.example.ClientOverheadBenchmark
+ */
+public class ClientOverheadBenchmark {
+
+    private static final long SERVER_LATENCY_MS = 20;
+    private static final int REQUESTS_PER_LEVEL = 400;
+    private static final int[] CONCURRENCY_LEVELS = {1, 8, 32, 64};
+
+    public static void main(String[] args) throws Exception {
+        try (StubGeminiServer server = new StubGeminiServer("# Titre\nUn paragraphe de test.", SERVER_LATENCY_MS)) {
+            GeminiClient client = new GeminiClient(GeminiClient.newHttpClient(Duration.ofSeconds(5)),
+                    "bench", server.getBaseUrl(), GeminiClient.DEFAULT_MODEL, Duration.ofSeconds(30));
+            String legacyUrl = server.getBaseUrl() + GeminiClient.DEFAULT_MODEL + ":generateContent?key=bench";
+
+            // Warm-up every path at full concurrency so that class loading, JIT and pool growth
+            // do not skew the measured levels
+            int maxConcurrency = CONCURRENCY_LEVELS[CONCURRENCY_LEVELS.length - 1];
+            runBlocking(() -> legacyCall(legacyUrl), maxConcurrency, REQUESTS_PER_LEVEL);
+            runBlocking(() -> client.generate("bench"), maxConcurrency, REQUESTS_PER_LEVEL);
+            runAsync(client, maxConcurrency, REQUESTS_PER_LEVEL);
+
+            System.out.printf("%-12s %-24s %-24s %-24s%n", "concurrency",
+                    "HttpURLConnection (ms)", "generate (ms)", "generateAsync (ms)");
+            for (int concurrency : CONCURRENCY_LEVELS) {
+                double legacy = runBlocking(() -> legacyCall(legacyUrl), concurrency, REQUESTS_PER_LEVEL);
+                double pooled = runBlocking(() -> client.generate("bench"), concurrency, REQUESTS_PER_LEVEL);
+                double async = runAsync(client, concurrency, REQUESTS_PER_LEVEL);
+                System.out.printf("%-12d %-24.2f %-24.2f %-24.2f%n", concurrency, legacy, pooled, async);
+            }
+            System.out.println("Valeurs : surcoût moyen par requête, latence serveur simulée ("
+                    + SERVER_LATENCY_MS + " ms) déduite.");
+        }
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static double runBlocking(Call call, int concurrency, int requests) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        AtomicLong totalNanos = new AtomicLong();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    call.run();
+                    totalNanos.addAndGet(System.nanoTime() - start);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return overheadMillis(totalNanos.get(), requests);
+    }
+
+    private static double runAsync(GeminiClient client, int concurrency, int requests) {
+        AtomicLong totalNanos = new AtomicLong();
+        // At most `concurrency` exchanges in flight, without one blocked thread per exchange
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < concurrency; lane++) {
+            int share = requests / concurrency + (lane < requests % concurrency ? 1 : 0);
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < share; i++) {
+                chain = chain.thenCompose(ignored -> {
+                    long start = System.nanoTime();
+                    return client.generateAsync("bench")
+                            .thenAccept(text -> totalNanos.addAndGet(System.nanoTime() - start));
+                });
+            }
+            lanes.add(chain);
+        }
+        CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0])).join();
+        return overheadMillis(totalNanos.get(), requests);
+    }
+
+    private static void legacyCall(String url) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+        con.setRequestMethod("POST");
+        con.setRequestProperty("Content-Type", "application/json");
+        con.setDoOutput(true);
+        try (OutputStream out = con.getOutputStream()) {
+            out.write(GeminiClient.buildRequestBody("bench").toString().getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream in = con.getInputStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            in.transferTo(body);
+            GeminiClient.extractGeminiResponse(body.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static double overheadMillis(long totalNanos, int requests) {
+        return totalNanos / 1_000_000.0 / requests - SERVER_LATENCY_MS;
+    }
+}
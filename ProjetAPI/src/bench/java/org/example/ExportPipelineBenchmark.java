@@ -0,0 +1,79 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export Markdown + HTML + PDF d'un même document : les trois formats l'un après l'autre,
+ * puis en parallèle avec {@link ExportPipeline}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class ExportPipelineBenchmark {
+
+    private static final int BLOCKS_PER_PAGE = 22;
+    private static final Set<ExportFormat> ALL_FORMATS = EnumSet.allOf(ExportFormat.class);
+
+    @Param({"1", "50"})
+    public int pages;
+
+    private MarkdownDocument document;
+    private Path directory;
+    private Path baseFile;
+
+    @Setup
+    public void buildDocument() throws IOException {
+        List<MarkdownDocument.Block> source = MarkdownParser.parse(Fixtures.markdown(Fixtures.RESPONSE_LARGE)).getBlocks();
+        List<MarkdownDocument.Block> blocks = new ArrayList<>();
+        for (int i = 0; i < pages * BLOCKS_PER_PAGE; i++) {
+            blocks.add(source.get(i % source.size()));
+        }
+        document = new MarkdownDocument(blocks);
+        directory = Files.createTempDirectory("bench-export");
+        baseFile = directory.resolve("document");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOutput() throws IOException {
+        for (ExportFormat format : ALL_FORMATS) {
+            Files.deleteIfExists(ExportPipeline.withExtension(baseFile, format));
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void sequential() throws IOException {
+        for (ExportFormat format : ALL_FORMATS) {
+            format.getWriter().write(document, ExportPipeline.withExtension(baseFile, format));
+        }
+    }
+
+    @Benchmark
+    public List<Path> pipeline() throws IOException {
+        return ExportPipeline.export(document, baseFile, ALL_FORMATS);
+    }
+}
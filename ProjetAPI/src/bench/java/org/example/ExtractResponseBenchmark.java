@@ -0,0 +1,57 @@
+package org.example;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décodage d'une réponse :generateContent complète (2 Ko et 170 Ko) :
+ * arbre org.json complet (ancien chemin) contre décodage en flux depuis les octets reçus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractResponseBenchmark {
+
+    @Param({Fixtures.RESPONSE_SMALL, Fixtures.RESPONSE_LARGE})
+    public String fixture;
+
+    private String payload;
+    private byte[] bytes;
+
+    @Setup
+    public void load() {
+        payload = Fixtures.read(fixture);
+        bytes = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String jsonTree() {
+        // Former implementation: String of the whole body, then a full DOM
+        JSONObject json = new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+        return json.getJSONArray("candidates").getJSONObject(0).getJSONObject("content")
+                .getJSONArray("parts").getJSONObject(0).getString("text").trim();
+    }
+
+    @Benchmark
+    public GeminiResponse streamingDecoder() throws IOException {
+        return GeminiResponseDecoder.decode(new ByteArrayInputStream(bytes), null);
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Réponses Gemini enregistrées (src/bench/resources/fixtures) : les benchmarks tournent
+ * hors ligne et donnent des chiffres comparables d'une exécution à l'autre.
+ */
+final class Fixtures {
+
+    static final String RESPONSE_SMALL = "response-small.json";
+    static final String RESPONSE_LARGE = "response-large.json";
+    static final String STREAM_SMALL = "stream-small.sse";
+
+    private Fixtures() {
+    }
+
+    static String read(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Fixture introuvable : " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Texte Markdown contenu dans une réponse enregistrée. */
+    static String markdown(String name) {
+        return GeminiClient.extractGeminiResponse(read(name));
+    }
+}
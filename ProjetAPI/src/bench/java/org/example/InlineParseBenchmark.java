@@ -0,0 +1,64 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Découpage gras/italique (ancien parseBoldItalic) sur des lignes normales et sur des
+ * lignes pathologiques pleines d'astérisques, où un algorithme quadratique décrocherait.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InlineParseBenchmark {
+
+    @Param({"typical", "unclosed-bold", "alternating", "single-stars"})
+    public String shape;
+
+    @Param({"200", "20000"})
+    public int length;
+
+    private String line;
+
+    @Setup
+    public void buildLine() {
+        StringBuilder builder = new StringBuilder(length + 16);
+        while (builder.length() < length) {
+            switch (shape) {
+                case "typical":
+                    builder.append("Un texte avec du **gras** et de l'*italique* ");
+                    break;
+                case "unclosed-bold":
+                    builder.append(builder.length() == 0 ? "**" : "mot ");
+                    break;
+                case "alternating":
+                    builder.append("* ** ");
+                    break;
+                default:
+                    builder.append('*');
+                    break;
+            }
+        }
+        line = builder.substring(0, length);
+    }
+
+    @Benchmark
+    public List<MarkdownDocument.Span> parseInline() {
+        return MarkdownParser.parseInline(line, 0);
+    }
+}
@@ -0,0 +1,194 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Générateur de charge : envoie des demandes à débit fixe dans tout le pipeline (génération,
+ * analyse Markdown pour l'affichage, export) avec le fournisseur de rejeu, sans réseau ni quota,
+ * puis affiche le débit obtenu et les latences par étape.
+ * Les demandes partent à l'instant prévu, que les précédentes soient terminées ou non, et leurs
+ * latences sont mesurées depuis cet instant : l'attente due à la saturation est comptée.
+ *
+ * Sans --recordings, deux échanges sont fabriqués à partir des réponses enregistrées des
+ * benchmarks et rejoués avec le profil synthétique.
+ *
+ * Lancement : mvn -Pbench compile exec:exec -Dbench.main=org.example.LoadGenerator
+ *     -Dbench.args="--rate 20 --duration 30 --latency synthetic --formats md,pdf"
+ */
+public class LoadGenerator {
+
+    private static final int FIXTURE_MAX_CHARS = 8000;
+    private static final String[] STAGES = {"Génération", "Analyse", "Export", "Total"};
+
+    private Path recordings;
+    private double rate = 10;
+    private int durationSeconds = 20;
+    private RecordReplayProvider.LatencyProfile latency = RecordReplayProvider.LatencyProfile.SYNTHETIC;
+    private Set<ExportFormat> formats = ExportFormat.parseList("md,pdf");
+    private int concurrency = 64;
+    private boolean stream;
+
+    private final LatencyHistogram[] histograms = {
+            new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()
+    };
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parseArguments(args);
+        generator.run();
+        AppExecutors.shutdown();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--recordings":
+                    recordings = Paths.get(args[++i]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--duration":
+                    durationSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--latency":
+                    latency = RecordReplayProvider.LatencyProfile.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--formats":
+                    formats = ExportFormat.parseList(args[++i]);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--stream":
+                    stream = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("option inconnue : " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        Path output = Files.createTempDirectory("textgen-load");
+        if (recordings == null) {
+            recordings = output.resolve("recordings");
+            recordFixtures(recordings);
+        }
+        RecordReplayProvider provider = RecordReplayProvider.replaying(recordings, GeminiClient.DEFAULT_MODEL,
+                latency, AppConfig.getLong("textgen.replay.ttfbMs", 800),
+                AppConfig.getLong("textgen.replay.charsPerSecond", 2000), false);
+        // No cache: every request goes through the provider
+        GenerationService service = new GenerationService(provider, new ResponseCache(1, 0, null, 0));
+
+        int total = (int) Math.round(rate * durationSeconds);
+        long intervalNanos = (long) (1e9 / rate);
+        System.out.printf("%d échanges rejoués (%s), %d demandes à %.1f/s, formats %s%n",
+                provider.size(), latency.name().toLowerCase(Locale.ROOT), total, rate, formats);
+
+        ExecutorService workers = AppExecutors.newBoundedExecutor("load-worker", concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int request = i;
+            workers.execute(() -> runOne(service, output, request, scheduled));
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Terminées : %d, échecs : %d, durée : %.1f s, débit : %.2f demandes/s%n",
+                succeeded.get(), failed.get(), elapsed, succeeded.get() / elapsed);
+        System.out.printf("%-12s %8s %10s %10s %10s %10s%n", "Étape (ms)", "Nombre", "p50", "p90", "p99", "Max");
+        for (int stage = 0; stage < STAGES.length; stage++) {
+            LatencyHistogram.Snapshot snapshot = histograms[stage].snapshot();
+            System.out.printf(Locale.ROOT, "%-12s %8d %10.1f %10.1f %10.1f %10.1f%n", STAGES[stage],
+                    snapshot.getCount(), snapshot.percentileMillis(50), snapshot.percentileMillis(90),
+                    snapshot.percentileMillis(99), snapshot.getMaxMillis());
+        }
+        System.out.println("Génération et Total sont comptés depuis l'instant prévu de chaque demande.");
+        deleteRecursively(output);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void runOne(GenerationService service, Path output, int request, long scheduled) {
+        try {
+            String prompt = Prompts.forContent("Article", "sujet de charge " + request);
+            String text = stream
+                    ? service.stream(prompt, true, chunk -> { }).getText()
+                    : service.generate(prompt, true).getText();
+            long generated = System.nanoTime();
+            histograms[0].recordNanos(generated - scheduled);
+
+            MarkdownDocument document = MarkdownParser.parse(text);
+            long parsed = System.nanoTime();
+            histograms[1].recordNanos(parsed - generated);
+
+            Path baseFile = output.resolve("document-" + request);
+            for (Path file : ExportPipeline.export(document, baseFile, formats)) {
+                Files.delete(file);
+            }
+            long exported = System.nanoTime();
+            histograms[2].recordNanos(exported - parsed);
+            histograms[3].recordNanos(exported - scheduled);
+            succeeded.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("échec : " + e.getMessage());
+        }
+    }
+
+    // Builds replayable exchanges from the recorded benchmark responses. The large report is cut to
+    // about the size of a long article: in full it would take over a minute to stream
+    private static void recordFixtures(Path directory) {
+        String large = Fixtures.markdown(Fixtures.RESPONSE_LARGE);
+        String[] texts = {Fixtures.markdown(Fixtures.RESPONSE_SMALL),
+                large.substring(0, Math.max(1, large.lastIndexOf('\n', FIXTURE_MAX_CHARS)))};
+        for (int i = 0; i < texts.length; i++) {
+            String text = texts[i];
+            ModelProvider fixed = new ModelProvider() {
+                @Override
+                public String getModel() {
+                    return GeminiClient.DEFAULT_MODEL;
+                }
+
+                @Override
+                public GeminiResponse generate(String prompt, Deadline deadline) {
+                    return new GeminiResponse(text, "STOP", 0, 0, 0);
+                }
+
+                @Override
+                public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+                    onText.accept(text);
+                    return generate(prompt, deadline);
+                }
+            };
+            RecordReplayProvider.recording(fixed, directory).generate("fixture " + i);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion Markdown vers modèle, en une fois et par fragments de 64 caractères
+ * (cadence typique du streaming SSE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownParseBenchmark {
+
+    @Param({Fixtures.RESPONSE_SMALL, Fixtures.RESPONSE_LARGE})
+    public String fixture;
+
+    private String markdown;
+
+    @Setup
+    public void load() {
+        markdown = Fixtures.markdown(fixture);
+    }
+
+    @Benchmark
+    public MarkdownDocument parse() {
+        return MarkdownParser.parse(markdown);
+    }
+
+    @Benchmark
+    public MarkdownDocument parseIncremental() {
+        MarkdownParser parser = new MarkdownParser();
+        for (int start = 0; start < markdown.length(); start += 64) {
+            parser.feed(markdown.subSequence(start, Math.min(markdown.length(), start + 64)));
+        }
+        parser.finish();
+        return parser.getDocument();
+    }
+}
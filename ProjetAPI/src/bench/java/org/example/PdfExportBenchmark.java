@@ -0,0 +1,66 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export PDF de documents d'environ 1, 50 et 500 pages, construits en répétant
+ * les blocs du grand rapport enregistré.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class PdfExportBenchmark {
+
+    // Roughly what the exporter fits on one LETTER page for the recorded report
+    private static final int BLOCKS_PER_PAGE = 22;
+
+    @Param({"1", "50", "500"})
+    public int pages;
+
+    private MarkdownDocument document;
+    private File output;
+
+    @Setup
+    public void buildDocument() throws IOException {
+        List<MarkdownDocument.Block> source = MarkdownParser.parse(Fixtures.markdown(Fixtures.RESPONSE_LARGE)).getBlocks();
+        List<MarkdownDocument.Block> blocks = new ArrayList<>();
+        for (int i = 0; i < pages * BLOCKS_PER_PAGE; i++) {
+            blocks.add(source.get(i % source.size()));
+        }
+        document = new MarkdownDocument(blocks);
+        output = Files.createTempFile("bench", ".pdf").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOutput() {
+        output.delete();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        PdfExporter.export(document, output);
+        return output.length();
+    }
+}
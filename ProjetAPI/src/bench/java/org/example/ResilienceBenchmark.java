@@ -0,0 +1,102 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Effet de la couche de résilience face à un serveur local qui injecte des pannes :
+ * taux de succès avec et sans nouveaux essais quand 30 % des réponses sont des 503,
+ * puis latences p50/p99 avec et sans hedging quand 5 % des réponses prennent une seconde de plus.
+ *
+ * Lancement : mvn -Pbench compile exec:exec -Dbench.main=org.example.ResilienceBenchmark
+ */
+public class ResilienceBenchmark {
+
+    private static final long SERVER_LATENCY_MS = 20;
+    private static final int REQUESTS = 400;
+    private static final int CONCURRENCY = 8;
+
+    public static void main(String[] args) throws Exception {
+        try (StubGeminiServer server = new StubGeminiServer("# Titre\nUn paragraphe de test.", SERVER_LATENCY_MS)) {
+            GeminiClient client = new GeminiClient(GeminiClient.newHttpClient(Duration.ofSeconds(5)),
+                    "bench", server.getBaseUrl(), GeminiClient.DEFAULT_MODEL, Duration.ofSeconds(30));
+
+            server.setFailureRate(0.3, 503);
+            // Breaker effectively disabled: this scenario measures retries alone
+            ResilientCaller noRetry = ResilientCaller.none();
+            ResilientCaller retry = new ResilientCaller(new RetryPolicy(4, 20, 200),
+                    new CircuitBreaker(Integer.MAX_VALUE, 0), 0, 0);
+            System.out.printf("503 sur 30 %% des requêtes : succès sans nouvel essai %.1f %%, avec 4 essais %.1f %%%n",
+                    successRate(client, noRetry), successRate(client, retry));
+            server.setFailureRate(0, 503);
+
+            server.setSlowRequests(0.05, 1000);
+            Metrics.reset();
+            double[] plain = latencies(client, ResilientCaller.none());
+            ResilientCaller hedged = new ResilientCaller(new RetryPolicy(1, 0, 0),
+                    new CircuitBreaker(Integer.MAX_VALUE, 0), 90, 0);
+            long before = Metrics.get("hedge.started");
+            double[] withHedge = latencies(client, hedged);
+            System.out.printf("5 %% de requêtes lentes (+1 s), sans hedging : p50 %.0f ms, p99 %.0f ms%n",
+                    percentile(plain, 50), percentile(plain, 99));
+            System.out.printf("avec hedging au p90                     : p50 %.0f ms, p99 %.0f ms (%d requêtes en plus)%n",
+                    percentile(withHedge, 50), percentile(withHedge, 99), Metrics.get("hedge.started") - before);
+        }
+    }
+
+    private static double successRate(GeminiClient client, ResilientCaller caller) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                results.add(pool.submit(() -> {
+                    try {
+                        caller.call(() -> client.generate("bench"));
+                        return true;
+                    } catch (GeminiException e) {
+                        return false;
+                    }
+                }));
+            }
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                succeeded += result.get() ? 1 : 0;
+            }
+            return 100.0 * succeeded / REQUESTS;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double[] latencies(GeminiClient client, ResilientCaller caller) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                results.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    caller.call(() -> client.generate("bench"));
+                    return System.nanoTime() - start;
+                }));
+            }
+            double[] millis = new double[REQUESTS];
+            for (int i = 0; i < REQUESTS; i++) {
+                millis[i] = results.get(i).get() / 1e6;
+            }
+            Arrays.sort(millis);
+            return millis;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
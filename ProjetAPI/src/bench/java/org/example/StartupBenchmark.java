@@ -0,0 +1,84 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Temps jusqu'à la première image : lance plusieurs fois l'application packagée
+ * avec -Dtextgen.startup.exitAfterFirstFrame=true, sans puis avec l'archive AppCDS
+ * si elle existe, et affiche la médiane et le minimum de chaque série.
+ * Un affichage est nécessaire (ou xvfb-run).
+ *
+ * Lancement : mvn -Pbench,cds package exec:exec -Dbench.main=org.example.StartupBenchmark [-Dbench.args=10]
+ */
+public class StartupBenchmark {
+
+    private static final String PREFIX = "textgen.startup.firstFrameMs=";
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Path target = Paths.get("target");
+        Path jar;
+        try (Stream<Path> files = Files.list(target)) {
+            jar = files.filter(path -> path.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Aucun jar dans target : lancez mvn -Pcds package"));
+        }
+        Path archive = target.resolve("textgen.jsa");
+
+        report("sans CDS", measure(jar, null, runs));
+        if (Files.exists(archive)) {
+            report("avec CDS", measure(jar, archive, runs));
+        } else {
+            System.out.println("Pas d'archive " + archive + " : seule la série sans CDS a été mesurée.");
+        }
+    }
+
+    private static List<Long> measure(Path jar, Path archive, int runs) throws IOException, InterruptedException {
+        List<Long> firstFrames = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            if (archive != null) {
+                command.add("-XX:SharedArchiveFile=" + archive);
+            }
+            command.add("-Dtextgen.startup.exitAfterFirstFrame=true");
+            command.add("-jar");
+            command.add(jar.toString());
+
+            ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+            builder.environment().putIfAbsent("GEMINI_API_KEY", "startup-benchmark");
+            Process process = builder.start();
+            Long firstFrame = null;
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith(PREFIX)) {
+                        firstFrame = Long.parseLong(line.substring(PREFIX.length()).trim());
+                    }
+                }
+            }
+            if (process.waitFor() != 0 || firstFrame == null) {
+                throw new IllegalStateException("L'application n'a pas signalé sa première image (affichage disponible ?)");
+            }
+            firstFrames.add(firstFrame);
+        }
+        return firstFrames;
+    }
+
+    private static void report(String label, List<Long> millis) {
+        List<Long> sorted = new ArrayList<>(millis);
+        Collections.sort(sorted);
+        System.out.printf("%-10s première image : médiane %d ms, minimum %d ms (%d lancements)%n",
+                label, sorted.get(sorted.size() / 2), sorted.get(0), sorted.size());
+    }
+}
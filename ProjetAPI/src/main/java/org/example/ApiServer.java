@@ -0,0 +1,454 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mode serveur sans interface graphique : expose la génération par HTTP.
+ * <pre>
+ * --server [--host 127.0.0.1] [--port 8080] [--max-concurrent 16] [--queue 64] [--max-per-client 4]
+ *          [--trusted-proxies 10.0.0.1,10.0.0.2]
+ * </pre>
+ * Routes (corps JSON {"contentType": "Article", "subject": "...", "bypassCache": false}) :
+ * <ul>
+ * <li>POST /v1/generate : Markdown généré, en JSON ({"text", "cache"}) ou brut si Accept: text/markdown</li>
+ * <li>POST /v1/stream : le même texte en Server-Sent Events, fragment par fragment</li>
+ * <li>POST /v1/pdf : document PDF</li>
+ * <li>GET /health et GET /metrics</li>
+ * </ul>
+ * Les threads du serveur HTTP ne font qu'appliquer les limites et confier la requête à un pool
+ * borné, qui lit le corps et écrit la réponse : un client lent à envoyer son corps n'occupe
+ * qu'un thread de ce pool. Au-delà de max-concurrent générations en cours et de queue en
+ * attente, le serveur répond 503 ; au-delà de max-per-client demandes d'un même client
+ * (son adresse IP, ou l'en-tête X-Client-Id envoyé par un des trusted-proxies), il répond 429.
+ * Les deux portent un Retry-After.
+ */
+public class ApiServer implements AutoCloseable {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final GenerationService service;
+    private final HttpServer server;
+    private final ExecutorService dispatcher;
+    private final ThreadPoolExecutor workers;
+    // Generation side of SSE requests, whose worker thread writes the events
+    private final ExecutorService streamExecutor;
+    private final int maxPerClient;
+    // Addresses whose X-Client-Id header is believed; anyone else is identified by address
+    private final Set<String> trustedProxies;
+    private final Map<String, Integer> inFlightByClient = new ConcurrentHashMap<>();
+
+    public ApiServer(GenerationService service, String host, int port,
+                     int maxConcurrent, int queueSize, int maxPerClient) throws IOException {
+        this(service, host, port, maxConcurrent, queueSize, maxPerClient, Set.of());
+    }
+
+    /**
+     * @param trustedProxies adresses IP (telles que {@code getHostAddress()} les écrit) dont
+     *                       l'en-tête X-Client-Id désigne le client d'origine
+     */
+    public ApiServer(GenerationService service, String host, int port, int maxConcurrent, int queueSize,
+                     int maxPerClient, Set<String> trustedProxies) throws IOException {
+        this.service = service;
+        this.maxPerClient = maxPerClient;
+        this.trustedProxies = new HashSet<>(trustedProxies);
+        this.workers = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), AppExecutors.threadFactory("api-worker"));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.streamExecutor = Executors.newCachedThreadPool(AppExecutors.threadFactory("api-stream"));
+        this.dispatcher = AppExecutors.newBoundedExecutor("api-http", 2);
+
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.setExecutor(dispatcher);
+        server.createContext("/v1/generate", exchange -> accept(exchange, this::generate));
+        server.createContext("/v1/stream", exchange -> accept(exchange, this::stream));
+        server.createContext("/v1/pdf", exchange -> accept(exchange, this::pdf));
+        server.createContext("/health", this::health);
+        server.createContext("/metrics", exchange -> {
+            try {
+                sendJson(exchange, 200, Metrics.toJson());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    public static int run(String[] args) {
+        String host = "127.0.0.1";
+        int port = 8080;
+        int maxConcurrent = 16;
+        int queueSize = 64;
+        int maxPerClient = 4;
+        Set<String> trustedProxies = new HashSet<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--server":
+                        break;
+                    case "--host":
+                        host = requireValue(args, ++i);
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--max-concurrent":
+                        maxConcurrent = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--queue":
+                        queueSize = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--max-per-client":
+                        maxPerClient = Integer.parseInt(requireValue(args, ++i));
+                        break;
+                    case "--trusted-proxies":
+                        for (String proxy : requireValue(args, ++i).split(",")) {
+                            if (!proxy.trim().isEmpty()) {
+                                trustedProxies.add(proxy.trim());
+                            }
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("option inconnue : " + args[i]);
+                }
+            }
+            if (maxConcurrent < 1 || maxPerClient < 1) {
+                throw new IllegalArgumentException("--max-concurrent et --max-per-client doivent être supérieurs à 0");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            System.err.println("Usage : --server [--host 127.0.0.1] [--port 8080] [--max-concurrent N]"
+                    + " [--queue N] [--max-per-client N] [--trusted-proxies ip1,ip2]");
+            return 2;
+        }
+
+        List<String> apiKeys = ModelProvider.apiKeys();
+        if (apiKeys.isEmpty()) {
+            System.err.println("La variable d'environnement GEMINI_API_KEY (ou GEMINI_API_KEYS) n'est pas définie.");
+            return 2;
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            GenerationService service = new GenerationService(ModelProvider.fromConfig(apiKeys), ResponseCache.fromConfig(),
+                    ResilientCaller.fromConfig(), RateLimiter.shared());
+            Metrics.registerMBean();
+            ApiServer server = new ApiServer(service, host, port, maxConcurrent, queueSize, maxPerClient,
+                    trustedProxies);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                stopped.countDown();
+            }, "api-shutdown"));
+            System.out.println("Serveur API à l'écoute sur http://" + host + ":" + server.getPort());
+            stopped.await();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("valeur manquante pour " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        workers.shutdownNow();
+        streamExecutor.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, JSONObject request) throws IOException;
+    }
+
+    // Runs on the HTTP dispatcher: applies the limits and hands the exchange to a worker, which
+    // reads the body. The dispatcher never blocks on a client, so /health answers whatever they send.
+    private void accept(HttpExchange exchange, Handler handler) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendError(exchange, 405, "Méthode non autorisée, utilisez POST");
+            return;
+        }
+
+        String client = clientId(exchange);
+        if (!tryAcquire(client)) {
+            Metrics.increment("api.rejected.client");
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(exchange, 429, "Trop de requêtes simultanées pour ce client (maximum " + maxPerClient + ")");
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    handler.handle(exchange, readRequest(exchange));
+                } catch (BadRequestException e) {
+                    quietly(() -> sendError(exchange, e.status, e.getMessage()));
+                } catch (GeminiException e) {
+                    sendGeminiError(exchange, e);
+                } catch (IOException e) {
+                    // The client went away; nothing left to answer
+                } catch (RuntimeException e) {
+                    System.out.println("Warning: API request failed: " + e);
+                    quietly(() -> sendError(exchange, 500, "Erreur interne : " + e.getMessage()));
+                } finally {
+                    release(client);
+                    exchange.close();
+                }
+            });
+            Metrics.increment("api.requests");
+        } catch (RejectedExecutionException e) {
+            release(client);
+            Metrics.increment("api.rejected.overload");
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(exchange, 503, "Serveur saturé, réessayez plus tard");
+        }
+    }
+
+    // Check and increment in one atomic step: a concurrent release cannot drop the entry in between
+    private boolean tryAcquire(String client) {
+        boolean[] admitted = new boolean[1];
+        inFlightByClient.compute(client, (id, inFlight) -> {
+            int count = inFlight == null ? 0 : inFlight;
+            admitted[0] = count < maxPerClient;
+            return admitted[0] ? count + 1 : inFlight;
+        });
+        return admitted[0];
+    }
+
+    private void release(String client) {
+        inFlightByClient.computeIfPresent(client, (id, inFlight) -> inFlight > 1 ? inFlight - 1 : null);
+    }
+
+    private void generate(HttpExchange exchange, JSONObject request) throws IOException {
+        GenerationResult result = service(request).generate(prompt(request), request.optBoolean("bypassCache"),
+                requester(exchange));
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept != null && accept.contains("text/markdown")) {
+            send(exchange, 200, "text/markdown; charset=utf-8", result.getText().getBytes(StandardCharsets.UTF_8));
+        } else {
+            sendJson(exchange, 200, new JSONObject()
+                    .put("text", result.getText())
+                    .put("cache", result.getCacheOutcome().name()));
+        }
+    }
+
+    private void stream(HttpExchange exchange, JSONObject request) throws IOException {
+        String prompt = prompt(request);
+        boolean bypassCache = request.optBoolean("bypassCache");
+        LinkedBlockingQueue<String> chunks = new LinkedBlockingQueue<>();
+        // Generation runs on its own thread so that a slow client never holds up the shared flight
+        RateLimiter.Requester requester = requester(exchange);
+        GenerationService routed = service(request);
+        Future<GenerationResult> generation = streamExecutor.submit(() -> routed.stream(prompt, bypassCache, chunks::add,
+                requester));
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            while (!generation.isDone() || !chunks.isEmpty()) {
+                String chunk = chunks.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk != null) {
+                    writeEvent(out, null, new JSONObject().put("text", chunk));
+                }
+            }
+            GenerationResult result = generation.get();
+            writeEvent(out, "done", new JSONObject().put("cache", result.getCacheOutcome().name()));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            JSONObject error = new JSONObject().put("message", cause.getMessage());
+            if (cause instanceof GeminiException) {
+                error.put("status", ((GeminiException) cause).getStatusCode());
+            }
+            writeEvent(out, "error", error);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Client gone or server stopping: leave the shared call (aborted if nobody else waits)
+            generation.cancel(true);
+        }
+    }
+
+    private void pdf(HttpExchange exchange, JSONObject request) throws IOException {
+        GenerationResult result = service(request).generate(prompt(request), request.optBoolean("bypassCache"),
+                requester(exchange));
+        File file = File.createTempFile("textgen-", ".pdf");
+        try {
+            PdfExporter.export(MarkdownParser.parse(result.getText()), file);
+            exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"document.pdf\"");
+            exchange.sendResponseHeaders(200, file.length());
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(file.toPath(), out);
+            }
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        try {
+            sendJson(exchange, 200, new JSONObject()
+                    .put("status", "ok")
+                    .put("active", workers.getActiveCount())
+                    .put("queued", workers.getQueue().size())
+                    .put("breaker", service.getCaller().getBreaker().getState().name())
+                    .put("quotaWaitMs", service.getLimiter().estimatedWaitMillis())
+                    .put("endpoints", service.getProvider() instanceof ModelRouter
+                            ? ((ModelRouter) service.getProvider()).describe() : List.of()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Each client has its own line in the shared rate limiter, served in turn with the others
+    private RateLimiter.Requester requester(HttpExchange exchange) {
+        return new RateLimiter.Requester("api:" + clientId(exchange), null);
+    }
+
+    private static String prompt(JSONObject request) {
+        return Prompts.forContent(request.optString("contentType", "Article"), request.getString("subject"));
+    }
+
+    // Content types pinned to a model are routed to it, see ModelRouter
+    private GenerationService service(JSONObject request) {
+        return service.forContentType(request.optString("contentType", "Article"));
+    }
+
+    private static JSONObject readRequest(HttpExchange exchange) throws IOException, BadRequestException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new BadRequestException(413, "Corps de requête trop volumineux");
+        }
+        try {
+            JSONObject request = new JSONObject(new String(body, StandardCharsets.UTF_8));
+            if (request.optString("subject").trim().isEmpty()) {
+                throw new BadRequestException(400, "Le champ \"subject\" est obligatoire");
+            }
+            return request;
+        } catch (JSONException e) {
+            throw new BadRequestException(400, "JSON invalide : " + e.getMessage());
+        }
+    }
+
+    // A header anyone can set would let a client pick a new identity per request and skip the limit
+    private String clientId(HttpExchange exchange) {
+        String address = exchange.getRemoteAddress().getAddress().getHostAddress();
+        String id = exchange.getRequestHeaders().getFirst("X-Client-Id");
+        if (id != null && !id.trim().isEmpty() && trustedProxies.contains(address)) {
+            return id.trim();
+        }
+        return address;
+    }
+
+    private static void sendGeminiError(HttpExchange exchange, GeminiException e) {
+        int status;
+        if (e.getStatusCode() == 429 || e.getStatusCode() == 503) {
+            status = e.getStatusCode();
+            long retryAfter = e.getRetryAfterMillis();
+            exchange.getResponseHeaders().set("Retry-After",
+                    retryAfter > 0 ? String.valueOf((retryAfter + 999) / 1000) : RETRY_AFTER_SECONDS);
+        } else if (e instanceof GeminiTimeoutException) {
+            status = 504;
+        } else {
+            status = 502; // upstream failure
+        }
+        quietly(() -> sendError(exchange, status, e.getMessage()));
+    }
+
+    private static void writeEvent(OutputStream out, String event, JSONObject data) throws IOException {
+        StringBuilder frame = new StringBuilder();
+        if (event != null) {
+            frame.append("event: ").append(event).append('\n');
+        }
+        frame.append("data: ").append(data).append("\n\n");
+        out.write(frame.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, new JSONObject().put("error", message));
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JSONObject json) throws IOException {
+        send(exchange, status, "application/json; charset=utf-8", json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static void quietly(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException ignored) {
+            // Response already started or client gone
+        }
+    }
+
+    private static final class BadRequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Lecture des réglages de l'application.
+ * Une clé "textgen.http.connectTimeoutMs" est cherchée d'abord dans les propriétés système
+ * (-Dtextgen.http.connectTimeoutMs=...), puis dans la variable d'environnement
+ * TEXTGEN_HTTP_CONNECTTIMEOUTMS, sinon la valeur par défaut est utilisée.
+ */
+final class AppConfig {
+
+    private AppConfig() {
+    }
+
+    static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(key.replace('.', '_').toUpperCase(Locale.ROOT));
+        }
+        return value == null || value.isEmpty() ? defaultValue : value.trim();
+    }
+
+    static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.out.println("Warning: invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    static Duration getMillis(String key, long defaultMillis) {
+        return Duration.ofMillis(getLong(key, defaultMillis));
+    }
+}
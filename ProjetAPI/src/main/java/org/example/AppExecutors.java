@@ -0,0 +1,126 @@
+package org.example;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exécuteurs partagés par toute l'application pour le travail en arrière-plan
+ * (appels Gemini, exports).
+ * Sur un JDK 21+ les tâches tournent sur des threads virtuels, sinon sur des threads
+ * plateforme démons ; dans les deux cas les threads sont nommés et leur nombre est borné
+ * par textgen.executor.maxThreads.
+ */
+public final class AppExecutors {
+
+    private static volatile ExecutorService background;
+    private static volatile ExecutorService exportWriters;
+
+    private AppExecutors() {
+    }
+
+    public static ExecutorService background() {
+        ExecutorService executor = background;
+        if (executor == null) {
+            synchronized (AppExecutors.class) {
+                executor = background;
+                if (executor == null) {
+                    executor = newBoundedExecutor("textgen-worker", AppConfig.getInt("textgen.executor.maxThreads", 8));
+                    background = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Écrivains de {@link ExportPipeline}, au plus textgen.export.maxWriters à la fois
+     * (par défaut le nombre de cœurs) : l'écriture des formats est limitée par le CPU.
+     */
+    public static ExecutorService exportWriters() {
+        ExecutorService executor = exportWriters;
+        if (executor == null) {
+            synchronized (AppExecutors.class) {
+                executor = exportWriters;
+                if (executor == null) {
+                    executor = newBoundedExecutor("export-writer", AppConfig.getInt("textgen.export.maxWriters",
+                            Runtime.getRuntime().availableProcessors()));
+                    exportWriters = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Pool de taille fixe dont les tâches en excès attendent dans une file.
+     */
+    public static ExecutorService newBoundedExecutor(String namePrefix, int maxThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Fabrique de threads virtuels si le JDK les propose, sinon de threads démons.
+     * Les threads virtuels sont créés par réflexion pour que le projet compile toujours en Java 17.
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        ThreadFactory virtual = virtualThreadFactory(namePrefix);
+        if (virtual != null) {
+            return virtual;
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static boolean usesVirtualThreads() {
+        return Runtime.version().feature() >= 21 && AppConfig.getBoolean("textgen.executor.virtualThreads", true);
+    }
+
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        if (!usesVirtualThreads()) {
+            return null;
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 1L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Warning: virtual threads unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Interrompt les tâches en cours ; appelé à la fermeture de l'application.
+     */
+    public static void shutdown() {
+        if (exportWriters != null) {
+            exportWriters.shutdownNow();
+        }
+        ExecutorService executor = background;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                System.out.println("Warning: background tasks still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
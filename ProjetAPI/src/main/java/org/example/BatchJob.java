@@ -0,0 +1,146 @@
+package org.example;
+
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Une ligne du fichier d'entrée du mode batch : type de contenu + sujet.
+ */
+public class BatchJob {
+
+    // Ids name the exported files: no separators, no leading dot, nothing outside the output folder
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,99}");
+
+    private final String id;
+    private final String contentType;
+    private final String subject;
+
+    public BatchJob(String id, String contentType, String subject) {
+        this.id = id;
+        this.contentType = contentType;
+        this.subject = subject;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Lit un fichier .jsonl (objets {"id", "contentType", "subject"}) ou .csv
+     * (colonnes contentType,subject[,id], en-tête facultatif).
+     *
+     * @throws IllegalArgumentException si un identifiant n'est pas un nom de fichier simple
+     *                                  (lettres, chiffres, '.', '_', '-') ou apparaît deux fois
+     */
+    public static List<BatchJob> readAll(Path input) throws IOException {
+        boolean jsonl = input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+        List<BatchJob> jobs = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                BatchJob job = jsonl ? fromJson(line, lineNumber) : fromCsv(line, lineNumber);
+                if (job == null) {
+                    continue;
+                }
+                if (!VALID_ID.matcher(job.getId()).matches()) {
+                    throw new IllegalArgumentException("Ligne " + lineNumber + " : identifiant invalide \""
+                            + job.getId() + "\" (lettres, chiffres, '.', '_' ou '-', 100 au plus)");
+                }
+                // Two rows with one id would overwrite each other's files and share one checkpoint line
+                if (!ids.add(job.getId())) {
+                    throw new IllegalArgumentException("Ligne " + lineNumber + " : identifiant en double \""
+                            + job.getId() + "\"");
+                }
+                jobs.add(job);
+            }
+        }
+        return jobs;
+    }
+
+    private static BatchJob fromJson(String line, int lineNumber) {
+        JSONObject json = new JSONObject(line);
+        String contentType = json.optString("contentType", "Article");
+        String subject = json.getString("subject");
+        return new BatchJob(json.optString("id", defaultId(lineNumber, subject)), contentType, subject);
+    }
+
+    private static BatchJob fromCsv(String line, int lineNumber) {
+        List<String> columns = splitCsv(line);
+        if (columns.size() < 2) {
+            throw new IllegalArgumentException("Ligne " + lineNumber + " : deux colonnes attendues (type,sujet)");
+        }
+        String contentType = columns.get(0).trim();
+        String subject = columns.get(1).trim();
+        if (lineNumber == 1 && (contentType.equalsIgnoreCase("contentType") || contentType.equalsIgnoreCase("type"))) {
+            return null; // header row
+        }
+        String id = columns.size() > 2 && !columns.get(2).trim().isEmpty()
+                ? columns.get(2).trim()
+                : defaultId(lineNumber, subject);
+        return new BatchJob(id, contentType, subject);
+    }
+
+    // Minimal RFC 4180 split: quoted fields may contain commas and doubled quotes
+    private static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        columns.add(current.toString());
+        return columns;
+    }
+
+    private static String defaultId(int lineNumber, String subject) {
+        String ascii = Normalizer.normalize(subject, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        String slug = ascii.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+        if (slug.length() > 40) {
+            slug = slug.substring(0, 40);
+        }
+        return String.format("%04d-%s", lineNumber, slug);
+    }
+}
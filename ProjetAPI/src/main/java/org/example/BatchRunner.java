@@ -0,0 +1,236 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mode batch sans interface graphique :
+ * <pre>
+ * --batch sujets.csv [--out dossier] [--parallelism 4] [--format md,html,pdf] [--bypass-cache]
+ *         [--metrics-out metrics.json]
+ * </pre>
+ * Chaque ligne du fichier d'entrée produit un fichier par format demandé dans le dossier de sortie.
+ * Les identifiants terminés sont ajoutés à un fichier .checkpoint : relancer la même commande
+ * après une interruption ne refait que les lignes manquantes.
+ * Quand le quota Gemini est atteint, les appels attendent dans le limiteur de débit et
+ * l'attente estimée est affichée, au lieu d'échouer en 429.
+ * Cette classe ne touche pas à JavaFX et fonctionne sur un serveur sans affichage.
+ */
+public class BatchRunner {
+
+    private static final String CHECKPOINT_FILE = ".checkpoint";
+    private static final long QUOTA_NOTICE_INTERVAL_MS = 5000;
+
+    private Path input;
+    private Path outputDir = Paths.get("batch-output");
+    private int parallelism = 4;
+    private Set<ExportFormat> formats = EnumSet.of(ExportFormat.MARKDOWN);
+    private boolean bypassCache = false;
+    private Path metricsOutput;
+
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicLong generatedChars = new AtomicLong();
+    private final AtomicLong lastQuotaNotice = new AtomicLong();
+    // Every worker queues in the same rate-limiter line: documents start in input order
+    private final RateLimiter.Requester requester = new RateLimiter.Requester("batch", this::reportQuotaWait);
+
+    public static int run(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            System.err.println("Usage : --batch <fichier.csv|fichier.jsonl> [--out dossier] [--parallelism N]"
+                    + " [--format md,html,pdf] [--bypass-cache] [--metrics-out fichier.json]");
+            return 2;
+        }
+
+        List<String> apiKeys = ModelProvider.apiKeys();
+        if (apiKeys.isEmpty()) {
+            System.err.println("La variable d'environnement GEMINI_API_KEY (ou GEMINI_API_KEYS) n'est pas définie.");
+            return 2;
+        }
+
+        try {
+            GenerationService service = new GenerationService(ModelProvider.fromConfig(apiKeys), ResponseCache.fromConfig(),
+                    ResilientCaller.fromConfig(), RateLimiter.shared());
+            Metrics.registerMBean();
+            return runner.execute(service);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch interrompu, relancez la commande pour reprendre.");
+            return 130;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--batch":
+                    input = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--out":
+                    outputDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                case "--parallelism":
+                    parallelism = Integer.parseInt(requireValue(args, ++i, arg));
+                    if (parallelism < 1) {
+                        throw new IllegalArgumentException("--parallelism doit être supérieur à 0");
+                    }
+                    break;
+                case "--format":
+                    formats = ExportFormat.parseList(requireValue(args, ++i, arg));
+                    break;
+                case "--bypass-cache":
+                    bypassCache = true;
+                    break;
+                case "--metrics-out":
+                    metricsOutput = Paths.get(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    throw new IllegalArgumentException("option inconnue : " + arg);
+            }
+        }
+        if (input == null) {
+            throw new IllegalArgumentException("fichier d'entrée manquant");
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("valeur manquante pour " + option);
+        }
+        return args[index];
+    }
+
+    private int execute(GenerationService service) throws IOException, InterruptedException {
+        List<BatchJob> jobs = BatchJob.readAll(input);
+        Files.createDirectories(outputDir);
+        Path checkpoint = outputDir.resolve(CHECKPOINT_FILE);
+        Set<String> done = readCheckpoint(checkpoint);
+
+        List<BatchJob> pending = new ArrayList<>();
+        for (BatchJob job : jobs) {
+            if (!done.contains(job.getId())) {
+                pending.add(job);
+            }
+        }
+        System.out.printf("%d éléments, %d déjà faits, %d à générer (parallélisme %d)%n",
+                jobs.size(), jobs.size() - pending.size(), pending.size(), parallelism);
+
+        ExecutorService executor = AppExecutors.newBoundedExecutor("batch-worker", parallelism);
+        long start = System.nanoTime();
+
+        try (BufferedWriter checkpointWriter = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            ExecutorCompletionService<BatchJob> completion = new ExecutorCompletionService<>(executor);
+            for (BatchJob job : pending) {
+                completion.submit(() -> {
+                    process(service, job);
+                    return job;
+                });
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    BatchJob job = completion.take().get();
+                    // Only the coordinating thread writes the checkpoint, one flushed line per document
+                    checkpointWriter.write(job.getId());
+                    checkpointWriter.newLine();
+                    checkpointWriter.flush();
+                    succeeded.incrementAndGet();
+                    System.out.printf("[%d/%d] %s%n", i + 1, pending.size(), job.getId());
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                    System.err.printf("[%d/%d] échec : %s%n", i + 1, pending.size(), e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        printSummary(System.nanoTime() - start);
+        if (metricsOutput != null) {
+            Metrics.writeJson(metricsOutput);
+            System.out.println("Métriques écrites dans " + metricsOutput);
+        }
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    private void process(GenerationService service, BatchJob job) throws IOException {
+        String prompt = Prompts.forContent(job.getContentType(), job.getSubject());
+        GenerationResult result = service.forContentType(job.getContentType()).generate(prompt, bypassCache, requester);
+        // Failed rather than exported: it stays out of the checkpoint and a rerun tries it again
+        if (!result.isComplete()) {
+            throw new GeminiException(0, job.getId() + " : réponse Gemini incomplète ("
+                    + result.getFinishReason() + ")");
+        }
+        if (result.getCacheOutcome().isHit()) {
+            cacheHits.incrementAndGet();
+        }
+        generatedChars.addAndGet(result.getText().length());
+
+        // Parsed once, each format written in parallel on the shared export pool
+        ExportPipeline.export(result.getText(), exportBase(job), formats);
+    }
+
+    // BatchJob already rejects separators and dots in ids: this only guards against a future change there
+    private Path exportBase(BatchJob job) {
+        Path root = outputDir.toAbsolutePath().normalize();
+        Path base = root.resolve(job.getId()).normalize();
+        if (!base.startsWith(root) || base.equals(root)) {
+            throw new IllegalArgumentException("identifiant hors du dossier de sortie : " + job.getId());
+        }
+        return base;
+    }
+
+    // Called by every waiting worker about once a second: print at most one line every few seconds
+    private void reportQuotaWait(long waitMillis) {
+        long now = System.currentTimeMillis();
+        long last = lastQuotaNotice.get();
+        if (waitMillis > 0 && now - last >= QUOTA_NOTICE_INTERVAL_MS && lastQuotaNotice.compareAndSet(last, now)) {
+            System.out.printf("Quota Gemini atteint, attente estimée : %d s%n", (waitMillis + 999) / 1000);
+        }
+    }
+
+    private static Set<String> readCheckpoint(Path checkpoint) throws IOException {
+        Set<String> done = new HashSet<>();
+        if (Files.exists(checkpoint)) {
+            for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    done.add(line.trim());
+                }
+            }
+        }
+        return done;
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+        System.out.println("----");
+        System.out.printf("Terminés : %d, échecs : %d, depuis le cache : %d%n",
+                succeeded.get(), failed.get(), cacheHits.get());
+        System.out.printf("Durée : %.1f s, débit : %.2f documents/s, %.0f caractères/s%n",
+                seconds, succeeded.get() / seconds, generatedChars.get() / seconds);
+    }
+}
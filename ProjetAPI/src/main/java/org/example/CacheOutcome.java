@@ -0,0 +1,26 @@
+package org.example;
+
+/**
+ * Origine d'un résultat de génération vis-à-vis du cache.
+ */
+public enum CacheOutcome {
+    MEMORY_HIT("Cache : trouvé (mémoire)"),
+    DISK_HIT("Cache : trouvé (disque)"),
+    MISS("Cache : absent"),
+    COALESCED("Cache : partagé avec une génération identique en cours"),
+    BYPASSED("Cache : ignoré");
+
+    private final String label;
+
+    CacheOutcome(String label) {
+        this.label = label;
+    }
+
+    public boolean isHit() {
+        return this == MEMORY_HIT || this == DISK_HIT;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
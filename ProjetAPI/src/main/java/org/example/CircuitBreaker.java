@@ -0,0 +1,86 @@
+package org.example;
+
+/**
+ * Disjoncteur devant l'API Gemini. Après failureThreshold échecs consécutifs (5xx ou réseau),
+ * il s'ouvre : les appels échouent aussitôt pendant openMillis au lieu d'attendre un serveur
+ * en panne. Un seul appel d'essai passe ensuite ; son résultat referme ou rouvre le circuit.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Disjoncteur configuré par textgen.breaker.failureThreshold et textgen.breaker.openMs.
+     */
+    public static CircuitBreaker fromConfig() {
+        return new CircuitBreaker(AppConfig.getInt("textgen.breaker.failureThreshold", 5),
+                AppConfig.getLong("textgen.breaker.openMs", 30_000));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * À appeler avant chaque tentative.
+     *
+     * @throws GeminiException (503) tant que le circuit est ouvert
+     */
+    public synchronized void acquire() {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openMillis - System.currentTimeMillis();
+            if (remaining > 0) {
+                Metrics.increment("breaker.rejected");
+                throw new GeminiException(503, "Service Gemini indisponible (trop d'échecs récents), nouvel essai possible dans "
+                        + ((remaining + 999) / 1000) + " s", remaining);
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                Metrics.increment("breaker.rejected");
+                throw new GeminiException(503, "Service Gemini indisponible, appel d'essai en cours", openMillis);
+            }
+            trialInFlight = true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /** Échec pouvant signaler une panne ; les erreurs du client (4xx) ne comptent pas. */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                Metrics.increment("breaker.opened");
+                System.out.println("Warning: Gemini circuit breaker open after " + consecutiveFailures + " failures");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /** Tentative abandonnée (annulation) : ni succès ni échec. */
+    public synchronized void onAbandon() {
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import java.time.Duration;
+
+/**
+ * Échéance d'une génération, fixée au départ et transmise à chaque étape : attente du quota,
+ * tentatives, attente entre deux essais, connexion, première réponse et lecture du flux.
+ * Chaque délai propre à une étape est ramené au temps qui reste, si bien qu'une génération
+ * ne dépasse jamais son budget total, quel que soit le nombre de nouveaux essais.
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(0, 0);
+
+    private final long budgetMillis;
+    private final long expiresAt;
+
+    private Deadline(long budgetMillis, long expiresAt) {
+        this.budgetMillis = budgetMillis;
+        this.expiresAt = expiresAt;
+    }
+
+    /** Échéance dans millis millisecondes ; 0 ou moins pour aucune échéance. */
+    public static Deadline after(long millis) {
+        if (millis <= 0) {
+            return NONE;
+        }
+        return new Deadline(millis, System.nanoTime() + millis * 1_000_000);
+    }
+
+    /** Échéance de textgen.deadline.totalMs (0 = aucune). */
+    public static Deadline fromConfig() {
+        return after(AppConfig.getLong("textgen.deadline.totalMs", 300_000));
+    }
+
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public boolean isBounded() {
+        return budgetMillis > 0;
+    }
+
+    /** Temps restant, 0 une fois l'échéance passée, Long.MAX_VALUE sans échéance. */
+    public long remainingMillis() {
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (expiresAt - System.nanoTime()) / 1_000_000);
+    }
+
+    public boolean isExpired() {
+        return isBounded() && expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @throws GeminiTimeoutException (TOTAL) si l'échéance est passée
+     */
+    public void check() {
+        if (isExpired()) {
+            throw expired(null);
+        }
+    }
+
+    /** Le plus court de timeout et du temps restant. */
+    public Duration cap(Duration timeout) {
+        long remaining = remainingMillis();
+        return remaining < timeout.toMillis() ? Duration.ofMillis(Math.max(1, remaining)) : timeout;
+    }
+
+    public GeminiTimeoutException expired(Throwable cause) {
+        return GeminiTimeoutException.expired(GeminiTimeoutException.Stage.TOTAL, budgetMillis, cause);
+    }
+}
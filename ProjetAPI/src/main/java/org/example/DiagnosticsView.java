@@ -0,0 +1,103 @@
+package org.example;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fenêtre Diagnostics : latences par phase et compteurs de {@link Metrics},
+ * rafraîchis chaque seconde tant que la fenêtre est ouverte.
+ */
+public class DiagnosticsView {
+
+    private static final String[] COLUMNS = {"Phase", "Nombre", "Moyenne", "p50", "p90", "p99", "Max"};
+
+    private final Stage stage = new Stage();
+    private final GridPane latencyGrid = new GridPane();
+    private final Label countersLabel = new Label();
+    private final Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1), event -> update()));
+
+    public DiagnosticsView(Window owner) {
+        latencyGrid.setHgap(15);
+        latencyGrid.setVgap(4);
+
+        Label latencyHeader = new Label("Latences (ms)");
+        latencyHeader.getStyleClass().add("section-header");
+        Label countersHeader = new Label("Compteurs");
+        countersHeader.getStyleClass().add("section-header");
+
+        Button resetButton = new Button("Remettre à zéro");
+        resetButton.getStyleClass().add("secondary-button");
+        resetButton.setOnAction(event -> {
+            Metrics.reset();
+            update();
+        });
+
+        VBox root = new VBox(10, latencyHeader, latencyGrid, countersHeader, countersLabel, new HBox(resetButton));
+        root.setPadding(new Insets(20));
+        root.getStyleClass().add("card");
+
+        Scene scene = new Scene(root, 560, 420);
+        scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
+        stage.setTitle("Diagnostics");
+        stage.initOwner(owner);
+        stage.setScene(scene);
+
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnShown(event -> refresh.play());
+        stage.setOnHidden(event -> refresh.stop());
+    }
+
+    public void show() {
+        update();
+        stage.show();
+        stage.toFront();
+    }
+
+    private void update() {
+        latencyGrid.getChildren().clear();
+        for (int column = 0; column < COLUMNS.length; column++) {
+            Label header = new Label(COLUMNS[column]);
+            header.setStyle("-fx-font-weight: bold;");
+            latencyGrid.add(header, column, 0);
+        }
+        int row = 1;
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            LatencyHistogram.Snapshot snapshot = Metrics.snapshot(phase);
+            latencyGrid.addRow(row++,
+                    new Label(phase.getLabel()),
+                    new Label(String.valueOf(snapshot.getCount())),
+                    new Label(format(snapshot.getMeanMillis())),
+                    new Label(format(snapshot.percentileMillis(50))),
+                    new Label(format(snapshot.percentileMillis(90))),
+                    new Label(format(snapshot.percentileMillis(99))),
+                    new Label(format(snapshot.getMaxMillis())));
+        }
+
+        StringBuilder counters = new StringBuilder();
+        for (Map.Entry<String, Long> counter : Metrics.counters().entrySet()) {
+            counters.append(counter.getKey()).append(" : ").append(counter.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> error : Metrics.errorsByStatus().entrySet()) {
+            String status = error.getKey().equals("0") ? "réseau" : "HTTP " + error.getKey();
+            counters.append("erreurs ").append(status).append(" : ").append(error.getValue()).append('\n');
+        }
+        countersLabel.setText(counters.length() == 0 ? "Aucune requête pour l'instant." : counters.toString().trim());
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.1f", millis);
+    }
+}
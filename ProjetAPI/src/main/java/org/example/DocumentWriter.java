@@ -0,0 +1,12 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Écrit un document déjà analysé dans un format de sortie ({@link ExportFormat}).
+ */
+interface DocumentWriter {
+
+    void write(MarkdownDocument document, Path file) throws IOException;
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Formats d'export d'un document généré.
+ */
+public enum ExportFormat {
+    MARKDOWN("md", "Markdown", new MarkdownWriter()),
+    HTML("html", "HTML", new HtmlWriter()),
+    PDF("pdf", "PDF", (document, file) -> PdfExporter.export(document, file.toFile()));
+
+    private final String extension;
+    private final String label;
+    private final DocumentWriter writer;
+
+    ExportFormat(String extension, String label, DocumentWriter writer) {
+        this.extension = extension;
+        this.label = label;
+        this.writer = writer;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    DocumentWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Liste d'extensions séparées par des virgules, par exemple "md,html,pdf".
+     */
+    public static Set<ExportFormat> parseList(String list) {
+        Set<ExportFormat> formats = EnumSet.noneOf(ExportFormat.class);
+        for (String name : list.toLowerCase(Locale.ROOT).split(",")) {
+            ExportFormat format = fromExtension(name.trim());
+            if (format == null) {
+                throw new IllegalArgumentException("format inconnu : " + name.trim());
+            }
+            formats.add(format);
+        }
+        return formats;
+    }
+
+    public static ExportFormat fromExtension(String extension) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equals(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
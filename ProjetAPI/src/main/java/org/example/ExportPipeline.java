@@ -0,0 +1,122 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Export d'un document dans plusieurs formats à la fois.
+ * Le texte est analysé une seule fois ; chaque format est ensuite écrit en parallèle
+ * par son {@link DocumentWriter}, sur le pool partagé {@link AppExecutors#exportWriters()}
+ * borné au nombre de cœurs : un batch qui exporte des centaines de documents occupe
+ * tous les cœurs sans lancer plus d'écrivains qu'ils ne peuvent en exécuter.
+ *
+ * Les écrivains produisent leur sortie au fil de l'eau dans un FileChannel bufferisé,
+ * sans construire le document complet en mémoire.
+ */
+public final class ExportPipeline {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int BUFFER_CHARS = 8 * 1024;
+
+    private ExportPipeline() {
+    }
+
+    public static List<Path> export(String markdown, Path baseFile, Set<ExportFormat> formats) throws IOException {
+        return export(MarkdownParser.parse(markdown), baseFile, formats);
+    }
+
+    /**
+     * @param baseFile chemin sans extension ; chaque format y ajoute la sienne
+     * @return les fichiers écrits ; si un format échoue, les autres sont tout de même écrits
+     *         et la première erreur est levée
+     */
+    public static List<Path> export(MarkdownDocument document, Path baseFile, Set<ExportFormat> formats)
+            throws IOException {
+        ExecutorService writers = AppExecutors.exportWriters();
+        Map<ExportFormat, Future<Path>> pending = new EnumMap<>(ExportFormat.class);
+        for (ExportFormat format : formats) {
+            Path file = withExtension(baseFile, format);
+            pending.put(format, writers.submit(() -> write(format, document, file)));
+        }
+
+        List<Path> written = new ArrayList<>();
+        IOException failure = null;
+        try {
+            for (Future<Path> future : pending.values()) {
+                try {
+                    written.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    IOException error = cause instanceof IOException
+                            ? (IOException) cause : new IOException(cause.getMessage(), cause);
+                    if (failure == null) {
+                        failure = error;
+                    } else {
+                        failure.addSuppressed(error);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Interrupted writers delete their partial file
+            pending.values().forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export annulé");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return written;
+    }
+
+    public static Path withExtension(Path baseFile, ExportFormat format) {
+        return baseFile.resolveSibling(baseFile.getFileName() + "." + format.getExtension());
+    }
+
+    private static Path write(ExportFormat format, MarkdownDocument document, Path file) throws IOException {
+        try {
+            format.getWriter().write(document, file);
+        } catch (IOException | RuntimeException e) {
+            // Never leave a truncated file behind
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Metrics.increment("export." + format.getExtension());
+        return file;
+    }
+
+    /** Flux texte UTF-8 bufferisé vers un FileChannel ; un thread interrompu ferme le canal. */
+    static Writer newWriter(Path file) throws IOException {
+        FileChannel channel = open(file);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_BYTES), BUFFER_CHARS);
+    }
+
+    static OutputStream newOutputStream(Path file) throws IOException {
+        return new BufferedOutputStream(Channels.newOutputStream(open(file)), BUFFER_BYTES);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
@@ -0,0 +1,343 @@
+package org.example;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client de l'API Gemini, fournisseur par défaut ({@link ModelProvider}).
+ * Toutes les instances partagent par défaut un seul {@link HttpClient} : les connexions
+ * sont réutilisées (keep-alive) et multiplexées en HTTP/2 quand le serveur le permet.
+ *
+ * Chaque appel est borné par des délais : connexion (celui du HttpClient), réception des
+ * en-têtes (readTimeout) et silence pendant la lecture du corps (idleTimeout, voir
+ * {@link StreamWatchdog}), tous ramenés au temps restant avant l'échéance de l'appel.
+ */
+public class GeminiClient implements ModelProvider {
+
+    public static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
+    public static final String DEFAULT_MODEL = "gemini-1.5-flash-latest";
+
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+
+    private static volatile HttpClient sharedHttpClient;
+
+    private final HttpClient httpClient;
+    private final String apiKey;
+    private final String baseUrl;
+    private final String model;
+    private final Duration readTimeout;
+    private final Duration idleTimeout;
+
+    public GeminiClient(HttpClient httpClient, String apiKey, String baseUrl, String model, Duration readTimeout) {
+        this(httpClient, apiKey, baseUrl, model, readTimeout, readTimeout);
+    }
+
+    public GeminiClient(HttpClient httpClient, String apiKey, String baseUrl, String model, Duration readTimeout,
+                        Duration idleTimeout) {
+        this.httpClient = httpClient;
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.model = model;
+        this.readTimeout = readTimeout;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Client configuré à partir de {@link AppConfig} :
+     * textgen.api.baseUrl, textgen.model, textgen.http.connectTimeoutMs,
+     * textgen.http.readTimeoutMs, textgen.http.idleTimeoutMs et textgen.http.keepAliveSeconds.
+     */
+    public static GeminiClient create(String apiKey) {
+        return create(apiKey, AppConfig.get("textgen.model", DEFAULT_MODEL));
+    }
+
+    /** Comme {@link #create(String)}, pour un modèle donné (voir {@link ModelRouter}). */
+    public static GeminiClient create(String apiKey, String model) {
+        return new GeminiClient(sharedHttpClient(), apiKey,
+                AppConfig.get("textgen.api.baseUrl", DEFAULT_BASE_URL),
+                model,
+                AppConfig.getMillis("textgen.http.readTimeoutMs", 120_000),
+                AppConfig.getMillis("textgen.http.idleTimeoutMs", 30_000));
+    }
+
+    public static HttpClient sharedHttpClient() {
+        HttpClient client = sharedHttpClient;
+        if (client == null) {
+            synchronized (GeminiClient.class) {
+                client = sharedHttpClient;
+                if (client == null) {
+                    client = newHttpClient(AppConfig.getMillis("textgen.http.connectTimeoutMs", 10_000));
+                    sharedHttpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    public static HttpClient newHttpClient(Duration connectTimeout) {
+        // The JDK reads the idle keep-alive timeout once, when the connection pool is created
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout",
+                    String.valueOf(AppConfig.getLong("textgen.http.keepAliveSeconds", 300)));
+        }
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Appel bloquant. Interrompre le thread appelant abandonne l'échange HTTP en cours.
+     * Le corps est décodé au fil de la lecture par {@link GeminiResponseDecoder}.
+     */
+    @Override
+    public GeminiResponse generate(String prompt, Deadline deadline) {
+        long start = System.nanoTime();
+        Metrics.increment(Metrics.REQUESTS);
+        try {
+            // Reading through an InputStream (rather than ofString) makes the body read interruptible:
+            // closing the stream cancels the exchange and releases the connection
+            HttpResponse<InputStream> response = send(buildRequest(prompt, false, deadline), deadline);
+            Metrics.record(Metrics.Phase.TTFB, start);
+            try (InputStream body = new StreamWatchdog(response.body(), idleTimeout.toMillis(), deadline)) {
+                if (response.statusCode() != 200) {
+                    throw httpError(response, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                }
+                // Decoding is interleaved with the body read, so this phase includes the download
+                long decodeStart = System.nanoTime();
+                GeminiResponse result = GeminiResponseDecoder.decode(body, null);
+                Metrics.record(Metrics.Phase.DECODE, decodeStart);
+                return completed(result, start);
+            }
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw interrupted(e);
+            }
+            throw networkError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw interrupted(e);
+        }
+    }
+
+    public CompletableFuture<GeminiResponse> generateAsync(String prompt) {
+        long start = System.nanoTime();
+        Metrics.increment(Metrics.REQUESTS);
+        return httpClient.sendAsync(buildRequest(prompt, false, Deadline.none()),
+                        HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(response -> handleResponse(response, start))
+                .whenComplete((response, error) -> {
+                    // HTTP errors are counted by handleResponse, what is left failed at the network level
+                    if (error != null && !(error.getCause() instanceof GeminiException)) {
+                        Metrics.recordError(0);
+                    }
+                });
+    }
+
+    /**
+     * Appelle :streamGenerateContent en SSE et transmet chaque fragment de texte dès sa réception.
+     * La réponse renvoyée contient le texte complet, la raison d'arrêt et la consommation
+     * de tokens du dernier fragment qui les indique.
+     */
+    @Override
+    public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+        long start = System.nanoTime();
+        Metrics.increment(Metrics.REQUESTS);
+        try {
+            HttpResponse<InputStream> response = send(buildRequest(prompt, true, deadline), deadline);
+            Metrics.record(Metrics.Phase.TTFB, start);
+            // A stream that stops sending is aborted after idleTimeout, or at the deadline
+            InputStream body = new StreamWatchdog(response.body(), idleTimeout.toMillis(), deadline);
+            if (response.statusCode() != 200) {
+                try (InputStream error = body) {
+                    throw httpError(response, new String(error.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+
+            // Server-sent events: each "data:" line carries one partial GenerateContentResponse
+            StringBuilder text = new StringBuilder();
+            Consumer<String> sink = chunk -> {
+                if (text.length() == 0) {
+                    Metrics.record(Metrics.Phase.FIRST_TEXT, start);
+                }
+                text.append(chunk);
+                onText.accept(chunk);
+            };
+            String finishReason = null;
+            GeminiResponse usage = null;
+            long decodeNanos = 0;
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw interrupted(null);
+                    }
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    long decodeStart = System.nanoTime();
+                    GeminiResponse chunk = GeminiResponseDecoder.decode(line.substring(5), sink);
+                    decodeNanos += System.nanoTime() - decodeStart;
+                    if (chunk.getFinishReason() != null) {
+                        finishReason = chunk.getFinishReason();
+                    }
+                    if (chunk.getTotalTokenCount() > 0) {
+                        usage = chunk;
+                    }
+                }
+            }
+            // Includes the time spent in onText, which is meant to hand chunks off quickly
+            Metrics.recordNanos(Metrics.Phase.DECODE, decodeNanos);
+            Metrics.record(Metrics.Phase.TOTAL, start);
+            GeminiResponse result = new GeminiResponse(text.toString(), finishReason,
+                    usage == null ? 0 : usage.getPromptTokenCount(),
+                    usage == null ? 0 : usage.getCandidatesTokenCount(),
+                    usage == null ? 0 : usage.getTotalTokenCount());
+            Metrics.recordTokens(result);
+            return result;
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw interrupted(e);
+            }
+            throw networkError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw interrupted(e);
+        }
+    }
+
+    // Connects, sends the request and waits for the response headers
+    private HttpResponse<InputStream> send(HttpRequest request, Deadline deadline)
+            throws IOException, InterruptedException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            if (deadline.isExpired()) {
+                throw deadline.expired(e);
+            }
+            if (e instanceof HttpConnectTimeoutException) {
+                throw GeminiTimeoutException.expired(GeminiTimeoutException.Stage.CONNECT,
+                        httpClient.connectTimeout().map(Duration::toMillis).orElse(0L), e);
+            }
+            throw GeminiTimeoutException.expired(GeminiTimeoutException.Stage.FIRST_BYTE, readTimeout.toMillis(), e);
+        }
+    }
+
+    private HttpRequest buildRequest(String prompt, boolean stream, Deadline deadline) {
+        String method = stream ? ":streamGenerateContent?alt=sse&key=" : ":generateContent?key=";
+        return HttpRequest.newBuilder(URI.create(baseUrl + model + method + apiKey))
+                // Covers connecting, sending and waiting for the headers
+                .timeout(deadline.cap(readTimeout))
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(buildRequestBody(prompt).toString(), StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private GeminiResponse handleResponse(HttpResponse<String> response, long start) {
+        if (response.statusCode() != 200) {
+            throw httpError(response, response.body());
+        }
+        long decodeStart = System.nanoTime();
+        GeminiResponse result = GeminiResponseDecoder.decode(response.body(), null);
+        Metrics.record(Metrics.Phase.DECODE, decodeStart);
+        return completed(result, start);
+    }
+
+    // Trims the text and records the request duration and token usage
+    private static GeminiResponse completed(GeminiResponse response, long start) {
+        Metrics.record(Metrics.Phase.TOTAL, start);
+        Metrics.recordTokens(response);
+        return new GeminiResponse(response.getText().trim(), response.getFinishReason(),
+                response.getPromptTokenCount(), response.getCandidatesTokenCount(), response.getTotalTokenCount());
+    }
+
+    private static GeminiException httpError(HttpResponse<?> response, String body) {
+        int statusCode = response.statusCode();
+        Metrics.recordError(statusCode);
+        return new GeminiException(statusCode, "Erreur HTTP " + statusCode + ": " + body, retryAfterMillis(response, body));
+    }
+
+    /**
+     * Délai demandé par le serveur avant un nouvel essai : en-tête Retry-After (secondes ou date HTTP),
+     * sinon le champ retryDelay ("37s") des erreurs de quota Gemini ; -1 si aucun n'est donné.
+     */
+    static long retryAfterMillis(HttpResponse<?> response, String body) {
+        String header = response.headers().firstValue("Retry-After").orElse(null);
+        if (header != null) {
+            try {
+                return Math.max(0, Long.parseLong(header.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime date = ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+                } catch (DateTimeParseException ignored) {
+                    System.out.println("Warning: unreadable Retry-After header: " + header);
+                }
+            }
+        }
+        Matcher delay = RETRY_DELAY.matcher(body);
+        if (delay.find()) {
+            return (long) (Double.parseDouble(delay.group(1)) * 1000);
+        }
+        return -1;
+    }
+
+    private static GeminiException networkError(IOException e) {
+        Metrics.recordError(0);
+        return new GeminiException("Erreur réseau lors de l'appel à l'API Gemini : " + e.getMessage(), e);
+    }
+
+    private static GeminiException interrupted(Exception cause) {
+        Metrics.increment(Metrics.CANCELLED);
+        return new GeminiException("Requête Gemini interrompue", cause);
+    }
+
+    static JSONObject buildRequestBody(String prompt) {
+        JSONObject textPart = new JSONObject();
+        textPart.put("text", prompt);
+
+        JSONArray parts = new JSONArray();
+        parts.put(textPart);
+
+        JSONObject content = new JSONObject();
+        content.put("parts", parts);
+
+        JSONArray contents = new JSONArray();
+        contents.put(content);
+
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("contents", contents);
+        return requestBody;
+    }
+
+    static String extractGeminiResponse(String response) {
+        return GeminiResponseDecoder.decode(response, null).getText().trim();
+    }
+}
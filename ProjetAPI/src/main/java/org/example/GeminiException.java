@@ -0,0 +1,37 @@
+package org.example;
+
+/**
+ * Échec d'un appel à l'API Gemini. Le code HTTP vaut 0 pour les erreurs réseau.
+ */
+public class GeminiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    public GeminiException(int statusCode, String message) {
+        this(statusCode, message, -1);
+    }
+
+    public GeminiException(int statusCode, String message, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public GeminiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryAfterMillis = -1;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** Délai avant nouvel essai indiqué par le serveur (Retry-After), ou -1. */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+/**
+ * Champs utiles d'une réponse Gemini : le texte, la raison d'arrêt et la consommation de tokens.
+ */
+public class GeminiResponse {
+
+    private final String text;
+    private final String finishReason;
+    private final int promptTokenCount;
+    private final int candidatesTokenCount;
+    private final int totalTokenCount;
+
+    public GeminiResponse(String text, String finishReason,
+                          int promptTokenCount, int candidatesTokenCount, int totalTokenCount) {
+        this.text = text;
+        this.finishReason = finishReason;
+        this.promptTokenCount = promptTokenCount;
+        this.candidatesTokenCount = candidatesTokenCount;
+        this.totalTokenCount = totalTokenCount;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /** "STOP", "MAX_TOKENS", "SAFETY"... ou null si Gemini ne l'a pas indiquée. */
+    public String getFinishReason() {
+        return finishReason;
+    }
+
+    public int getPromptTokenCount() {
+        return promptTokenCount;
+    }
+
+    public int getCandidatesTokenCount() {
+        return candidatesTokenCount;
+    }
+
+    public int getTotalTokenCount() {
+        return totalTokenCount;
+    }
+
+    /**
+     * Vrai si Gemini a terminé normalement (STOP) avec du texte. Une réponse coupée
+     * (MAX_TOKENS, SAFETY...) ou vide n'est ni mise en cache ni substituée à un texte existant.
+     */
+    public boolean isComplete() {
+        return isComplete(text, finishReason);
+    }
+
+    static boolean isComplete(String text, String finishReason) {
+        if (!"STOP".equals(finishReason) || text == null) {
+            return false;
+        }
+        String trimmed = text.trim();
+        return !trimmed.isEmpty() && !trimmed.equals(GeminiResponseDecoder.NO_CANDIDATES)
+                && !trimmed.equals(GeminiResponseDecoder.NO_TEXT_PART);
+    }
+}
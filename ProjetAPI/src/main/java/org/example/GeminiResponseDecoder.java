@@ -0,0 +1,408 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Décodeur JSON en flux pour les réponses GenerateContentResponse.
+ * Il lit directement depuis le flux HTTP et ne garde que
+ * candidates[0].content.parts[*].text, candidates[0].finishReason et usageMetadata :
+ * le reste du document est parcouru sans être construit. Le texte des parts est transmis
+ * au consommateur par morceaux, au fil de la lecture.
+ */
+final class GeminiResponseDecoder {
+
+    // Text shown in place of an answer without text, never cached
+    static final String NO_CANDIDATES = "Réponse Gemini vide (pas de candidats).";
+    static final String NO_TEXT_PART = "Réponse Gemini vide (pas de partie de texte).";
+
+    // Text is handed to the consumer at least every TEXT_CHUNK characters
+    private static final int TEXT_CHUNK = 8192;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    private final Consumer<String> onText;
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder scratch = new StringBuilder();
+    private boolean sawCandidate;
+    private boolean sawPart;
+    private String finishReason;
+    private int promptTokenCount;
+    private int candidatesTokenCount;
+    private int totalTokenCount;
+
+    private GeminiResponseDecoder(Reader in, int bufferSize, Consumer<String> onText) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+        this.onText = onText;
+    }
+
+    static GeminiResponse decode(InputStream in, Consumer<String> onText) throws IOException {
+        return decode(new InputStreamReader(in, StandardCharsets.UTF_8), onText);
+    }
+
+    static GeminiResponse decode(String json, Consumer<String> onText) {
+        try {
+            // SSE chunks are small: do not allocate a full buffer for each of them
+            return decode(new StringReader(json), Math.max(16, Math.min(8192, json.length())), onText);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringReader never fails
+        }
+    }
+
+    static GeminiResponse decode(Reader in, Consumer<String> onText) throws IOException {
+        return decode(in, 8192, onText);
+    }
+
+    private static GeminiResponse decode(Reader in, int bufferSize, Consumer<String> onText) throws IOException {
+        GeminiResponseDecoder decoder = new GeminiResponseDecoder(in, bufferSize, onText);
+        decoder.readRoot();
+        return decoder.toResponse();
+    }
+
+    private GeminiResponse toResponse() {
+        String result;
+        if (!sawCandidate) {
+            result = NO_CANDIDATES;
+        } else if (!sawPart) {
+            result = NO_TEXT_PART;
+        } else {
+            result = text.toString();
+        }
+        return new GeminiResponse(result, finishReason, promptTokenCount, candidatesTokenCount, totalTokenCount);
+    }
+
+    // ---- Response structure ----
+
+    private void readRoot() throws IOException {
+        expect('{');
+        if (tryConsume('}')) {
+            return;
+        }
+        do {
+            String key = readKey();
+            if (key.equals("candidates")) {
+                readCandidates();
+            } else if (key.equals("usageMetadata")) {
+                readUsage();
+            } else {
+                skipValue();
+            }
+        } while (tryConsume(','));
+        expect('}');
+    }
+
+    private void readCandidates() throws IOException {
+        expect('[');
+        if (tryConsume(']')) {
+            return;
+        }
+        int index = 0;
+        do {
+            if (index++ == 0) {
+                readCandidate();
+            } else {
+                skipValue();
+            }
+        } while (tryConsume(','));
+        expect(']');
+    }
+
+    private void readCandidate() throws IOException {
+        sawCandidate = true;
+        expect('{');
+        if (tryConsume('}')) {
+            return;
+        }
+        do {
+            String key = readKey();
+            if (key.equals("content")) {
+                readContent();
+            } else if (key.equals("finishReason")) {
+                finishReason = readStringValue();
+            } else {
+                skipValue();
+            }
+        } while (tryConsume(','));
+        expect('}');
+    }
+
+    private void readContent() throws IOException {
+        expect('{');
+        if (tryConsume('}')) {
+            return;
+        }
+        do {
+            String key = readKey();
+            if (key.equals("parts")) {
+                readParts();
+            } else {
+                skipValue();
+            }
+        } while (tryConsume(','));
+        expect('}');
+    }
+
+    private void readParts() throws IOException {
+        expect('[');
+        if (tryConsume(']')) {
+            return;
+        }
+        do {
+            expect('{');
+            if (!tryConsume('}')) {
+                do {
+                    String key = readKey();
+                    if (key.equals("text")) {
+                        sawPart = true;
+                        expect('"');
+                        readString(true);
+                    } else {
+                        skipValue();
+                    }
+                } while (tryConsume(','));
+                expect('}');
+            }
+        } while (tryConsume(','));
+        expect(']');
+    }
+
+    private void readUsage() throws IOException {
+        expect('{');
+        if (tryConsume('}')) {
+            return;
+        }
+        do {
+            String key = readKey();
+            switch (key) {
+                case "promptTokenCount":
+                    promptTokenCount = readInt();
+                    break;
+                case "candidatesTokenCount":
+                    candidatesTokenCount = readInt();
+                    break;
+                case "totalTokenCount":
+                    totalTokenCount = readInt();
+                    break;
+                default:
+                    skipValue();
+                    break;
+            }
+        } while (tryConsume(','));
+        expect('}');
+    }
+
+    // ---- JSON lexing ----
+
+    private String readKey() throws IOException {
+        expect('"');
+        readString(false);
+        String key = scratch.toString();
+        expect(':');
+        return key;
+    }
+
+    private String readStringValue() throws IOException {
+        if (peekNonWhitespace() == 'n') {
+            skipValue();
+            return null;
+        }
+        expect('"');
+        readString(false);
+        return scratch.toString();
+    }
+
+    private int readInt() throws IOException {
+        peekNonWhitespace();
+        long value = 0;
+        boolean negative = false;
+        int c = peek();
+        if (c == '-') {
+            negative = true;
+            position++;
+        }
+        while ((c = peek()) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            position++;
+        }
+        // Ignore any fraction or exponent, token counts are integers
+        while ((c = peek()) == '.' || c == 'e' || c == 'E' || c == '+' || c == '-' || (c >= '0' && c <= '9')) {
+            position++;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Lit une chaîne dont le guillemet ouvrant est déjà consommé.
+     * En mode texte, les caractères vont dans {@code text} et au consommateur ;
+     * sinon ils remplacent le contenu de {@code scratch}.
+     */
+    private void readString(boolean isText) throws IOException {
+        StringBuilder out = isText ? new StringBuilder() : scratch;
+        out.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) {
+                throw new IOException("Réponse Gemini tronquée (chaîne non terminée)");
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                out.append(readEscape());
+            } else {
+                out.append(c);
+            }
+            if (isText && out.length() >= TEXT_CHUNK && !Character.isHighSurrogate(out.charAt(out.length() - 1))) {
+                emitText(out);
+            }
+        }
+        if (isText) {
+            emitText(out);
+        }
+    }
+
+    private void emitText(StringBuilder chunk) {
+        if (chunk.length() == 0) {
+            return;
+        }
+        String value = chunk.toString();
+        text.append(value);
+        if (onText != null) {
+            onText.accept(value);
+        }
+        chunk.setLength(0);
+    }
+
+    private char readEscape() throws IOException {
+        int c = next();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    code = (code << 4) | Character.digit(next(), 16);
+                }
+                return (char) code;
+            default:
+                throw new IOException("Échappement JSON invalide : \\" + (char) c);
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int c = peekNonWhitespace();
+        switch (c) {
+            case '{':
+            case '[':
+                skipContainer();
+                break;
+            case '"':
+                position++;
+                skipString();
+                break;
+            default:
+                // number, true, false, null
+                while ((c = peek()) != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                    position++;
+                }
+                break;
+        }
+    }
+
+    // Skips a whole object or array by counting brackets, without looking at keys
+    private void skipContainer() throws IOException {
+        int depth = 0;
+        do {
+            int c = next();
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peekNonWhitespace();
+        if (c != expected) {
+            throw new IOException("Réponse Gemini invalide : '" + expected + "' attendu, "
+                    + (c == -1 ? "fin du flux" : "'" + (char) c + "'") + " trouvé");
+        }
+        position++;
+    }
+
+    private boolean tryConsume(char expected) throws IOException {
+        if (peekNonWhitespace() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            throw new IOException("Réponse Gemini tronquée");
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+/**
+ * Délai dépassé pendant un appel Gemini. L'étape indique quel délai a expiré ; chacune a son
+ * compteur dans {@link Metrics}. Le code HTTP vaut 0, comme pour les autres erreurs réseau :
+ * un nouvel essai reste possible, sauf quand c'est le délai total qui est écoulé.
+ */
+public class GeminiTimeoutException extends GeminiException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Stage {
+        CONNECT("timeout.connect", "Délai dépassé : connexion à l'API Gemini impossible en %d s"),
+        FIRST_BYTE("timeout.firstByte", "Délai dépassé : aucune réponse de l'API Gemini après %d s"),
+        STREAM_IDLE("timeout.idle", "Délai dépassé : plus rien reçu de l'API Gemini depuis %d s"),
+        TOTAL("timeout.total", "Délai dépassé : génération non terminée après %d s");
+
+        private final String counter;
+        private final String message;
+
+        Stage(String counter, String message) {
+            this.counter = counter;
+            this.message = message;
+        }
+
+        public String getCounter() {
+            return counter;
+        }
+    }
+
+    private final Stage stage;
+
+    private GeminiTimeoutException(Stage stage, long limitMillis, Throwable cause) {
+        super(String.format(stage.message, Math.max(1, (limitMillis + 999) / 1000)), cause);
+        this.stage = stage;
+    }
+
+    /**
+     * Crée l'exception et la compte dans {@link Metrics}.
+     *
+     * @param limitMillis délai configuré qui vient d'expirer, cité dans le message
+     */
+    public static GeminiTimeoutException expired(Stage stage, long limitMillis, Throwable cause) {
+        Metrics.increment(stage.getCounter());
+        return new GeminiTimeoutException(stage, limitMillis, cause);
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /** Vrai si e signale l'échéance de l'appel : inutile alors de réessayer. */
+    public static boolean isDeadline(GeminiException e) {
+        return e instanceof GeminiTimeoutException && ((GeminiTimeoutException) e).stage == Stage.TOTAL;
+    }
+}
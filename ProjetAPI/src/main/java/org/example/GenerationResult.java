@@ -0,0 +1,53 @@
+package org.example;
+
+/**
+ * Texte produit pour un prompt, avec son origine (appel API ou cache), la raison d'arrêt de
+ * Gemini et les tokens consommés (zéro pour une réponse servie par le cache).
+ */
+public class GenerationResult {
+
+    private final String text;
+    private final CacheOutcome cacheOutcome;
+    private final String finishReason;
+    private final int promptTokens;
+    private final int candidateTokens;
+
+    public GenerationResult(String text, CacheOutcome cacheOutcome) {
+        this(text, cacheOutcome, null, 0, 0);
+    }
+
+    public GenerationResult(String text, CacheOutcome cacheOutcome, String finishReason, int promptTokens,
+                            int candidateTokens) {
+        this.text = text;
+        this.cacheOutcome = cacheOutcome;
+        this.finishReason = finishReason;
+        this.promptTokens = promptTokens;
+        this.candidateTokens = candidateTokens;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public CacheOutcome getCacheOutcome() {
+        return cacheOutcome;
+    }
+
+    /** Voir {@link GeminiResponse#getFinishReason()} ; "STOP" pour une réponse du cache. */
+    public String getFinishReason() {
+        return finishReason;
+    }
+
+    /** Voir {@link GeminiResponse#isComplete()}. */
+    public boolean isComplete() {
+        return GeminiResponse.isComplete(text, finishReason);
+    }
+
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    public int getCandidateTokens() {
+        return candidateTokens;
+    }
+}
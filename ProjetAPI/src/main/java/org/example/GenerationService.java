@@ -0,0 +1,184 @@
+package org.example;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Point d'entrée unique des générations : consulte le cache de réponses avant d'appeler Gemini
+ * et y enregistre chaque nouvelle réponse complète ({@link GeminiResponse#isComplete()}). Les appels passent par un {@link ResilientCaller},
+ * et les demandes identiques simultanées partagent un seul appel ({@link SingleFlight}).
+ * Chaque tentative attend son tour auprès du {@link RateLimiter}, au nom du demandeur.
+ * Chaque génération a une échéance ({@link Deadline#fromConfig()}) qui borne l'attente du quota,
+ * toutes les tentatives et les attentes entre elles.
+ */
+public class GenerationService {
+
+    public static final String INCOMPLETE = "generation.incomplete";
+
+    private final ModelProvider provider;
+    private final ResponseCache cache;
+    private final ResilientCaller caller;
+    private final RateLimiter limiter;
+    private final SingleFlight flights;
+
+    public GenerationService(ModelProvider provider, ResponseCache cache) {
+        this(provider, cache, ResilientCaller.none(), RateLimiter.unlimited());
+    }
+
+    public GenerationService(ModelProvider provider, ResponseCache cache, ResilientCaller caller, RateLimiter limiter) {
+        this(provider, cache, caller, limiter, new SingleFlight());
+    }
+
+    private GenerationService(ModelProvider provider, ResponseCache cache, ResilientCaller caller, RateLimiter limiter,
+                              SingleFlight flights) {
+        this.provider = provider;
+        this.cache = cache;
+        this.caller = caller;
+        this.limiter = limiter;
+        this.flights = flights;
+    }
+
+    /**
+     * Service pour un type de contenu : le même, sauf si ce type est épinglé à un autre modèle
+     * ({@link ModelRouter}) ; cache, résilience, limiteur et appels en cours restent partagés.
+     */
+    public GenerationService forContentType(String contentType) {
+        ModelProvider routed = provider.forContentType(contentType);
+        return routed == provider ? this : new GenerationService(routed, cache, caller, limiter, flights);
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public String getModel() {
+        return provider.getModel();
+    }
+
+    public ModelProvider getProvider() {
+        return provider;
+    }
+
+    public ResilientCaller getCaller() {
+        return caller;
+    }
+
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    public GenerationResult generate(String prompt, boolean bypassCache) {
+        return generate(prompt, bypassCache, RateLimiter.Requester.DEFAULT);
+    }
+
+    /**
+     * @param requester file d'attente du limiteur de débit ; reçoit l'attente estimée si le
+     *                  quota est atteint
+     */
+    public GenerationResult generate(String prompt, boolean bypassCache, RateLimiter.Requester requester) {
+        if (!bypassCache) {
+            GenerationResult cached = cache.get(provider.getModel(), prompt);
+            if (cached != null) {
+                countOutcome(cached.getCacheOutcome());
+                return cached;
+            }
+        }
+        SingleFlight.Result result = flights.execute(ResponseCache.key(provider.getModel(), prompt),
+                sink -> callAndCache(prompt, requester, null), null);
+        return toResult(result, bypassCache);
+    }
+
+    /**
+     * Variante en flux : les fragments sont transmis à onText au fil de l'eau.
+     * Une réponse trouvée en cache est transmise en un seul fragment ; une demande qui rejoint
+     * une génération identique déjà en cours reçoit d'abord le texte déjà produit.
+     */
+    public GenerationResult stream(String prompt, boolean bypassCache, Consumer<String> onText) {
+        return stream(prompt, bypassCache, onText, RateLimiter.Requester.DEFAULT);
+    }
+
+    public GenerationResult stream(String prompt, boolean bypassCache, Consumer<String> onText,
+                                   RateLimiter.Requester requester) {
+        if (!bypassCache) {
+            GenerationResult cached = cache.get(provider.getModel(), prompt);
+            if (cached != null) {
+                countOutcome(cached.getCacheOutcome());
+                onText.accept(cached.getText());
+                return cached;
+            }
+        }
+        AtomicBoolean received = new AtomicBoolean();
+        SingleFlight.Result result = flights.execute(ResponseCache.key(provider.getModel(), prompt),
+                sink -> callAndCache(prompt, requester, sink), chunk -> {
+                    received.set(true);
+                    onText.accept(chunk);
+                });
+        if (!received.get()) {
+            // Joined a non-streaming call for the same prompt: deliver its text in one piece
+            onText.accept(result.getResponse().getText().trim());
+        }
+        return toResult(result, bypassCache);
+    }
+
+    // Runs once per coalesced group, on the SingleFlight thread; sink is null for a blocking call
+    private GeminiResponse callAndCache(String prompt, RateLimiter.Requester requester, Consumer<String> sink) {
+        Deadline deadline = Deadline.fromConfig();
+        long estimatedTokens = limiter.estimateTokens(prompt);
+        GeminiResponse response;
+        if (sink == null) {
+            response = caller.call(deadline, () -> limited(requester, estimatedTokens, deadline,
+                    () -> provider.generate(prompt, deadline)));
+        } else {
+            // Once text has reached the screen, a retry would show it twice
+            AtomicBoolean delivered = new AtomicBoolean();
+            response = caller.callStreaming(deadline, () -> limited(requester, estimatedTokens, deadline,
+                    () -> provider.streamGenerate(prompt, deadline, chunk -> {
+                        delivered.set(true);
+                        sink.accept(chunk);
+                    })), () -> !delivered.get());
+        }
+        // A truncated, blocked or empty answer is shown once but never served again from the cache
+        if (response.isComplete()) {
+            cache.put(provider.getModel(), prompt, response.getText().trim());
+        } else {
+            Metrics.increment(INCOMPLETE);
+        }
+        return response;
+    }
+
+    // Every attempt, retries and hedged requests included, uses one request of the quota
+    private GeminiResponse limited(RateLimiter.Requester requester, long estimatedTokens, Deadline deadline,
+                                   Supplier<GeminiResponse> attempt) {
+        RateLimiter.Permit permit = limiter.acquire(requester, estimatedTokens, deadline);
+        GeminiResponse response;
+        try {
+            response = attempt.get();
+        } catch (RuntimeException e) {
+            // Any failure, not only Gemini's, gives the estimated tokens back
+            permit.fail(e);
+            throw e;
+        }
+        permit.complete(response);
+        return response;
+    }
+
+    private static GenerationResult toResult(SingleFlight.Result result, boolean bypassCache) {
+        GeminiResponse response = result.getResponse();
+        return new GenerationResult(response.getText().trim(), countOutcome(outcome(result, bypassCache)),
+                response.getFinishReason(), response.getPromptTokenCount(), response.getCandidatesTokenCount());
+    }
+
+    private static CacheOutcome outcome(SingleFlight.Result result, boolean bypassCache) {
+        if (result.isShared()) {
+            return CacheOutcome.COALESCED;
+        }
+        return bypassCache ? CacheOutcome.BYPASSED : CacheOutcome.MISS;
+    }
+
+    private static CacheOutcome countOutcome(CacheOutcome outcome) {
+        Metrics.increment("cache." + outcome.name().toLowerCase(Locale.ROOT));
+        return outcome;
+    }
+}
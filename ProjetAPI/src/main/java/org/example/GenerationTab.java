@@ -0,0 +1,681 @@
+package org.example;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Onglet de génération : son propre type de contenu, sujet, résultat, export, progression
+ * et annulation. Plusieurs onglets génèrent en même temps sur le {@link PriorityScheduler}
+ * partagé, qui sert d'abord l'onglet affiché ; chaque onglet a aussi sa file dans le
+ * {@link RateLimiter}.
+ */
+public class GenerationTab {
+
+    private static final String QUOTA_WAIT_LABEL = "Quota Gemini atteint, attente ~";
+    private static final String QUEUED_LABEL = "En attente d'une génération libre…";
+    private static final int TITLE_MAX_CHARS = 24;
+
+    private final GenerationService generationService;
+    // Null when the history directory cannot be opened
+    private final HistoryStore historyStore;
+    private final PriorityScheduler scheduler;
+    private final Prefetcher prefetcher;
+    // Restarted on every keystroke: fires once the subject has been left alone for a moment
+    private final PauseTransition subjectIdle =
+            new PauseTransition(Duration.millis(AppConfig.getLong("textgen.prefetch.idleMs", 1500)));
+    // Each tab has its own line in the shared rate limiter
+    private final String requesterName;
+
+    private final Tab tab = new Tab("Nouvel onglet");
+    private final ProgressIndicator tabProgress = new ProgressIndicator();
+    private ComboBox<String> contentTypeComboBox;
+    private TextField subjectTextField;
+    private Button generateButton;
+    private Button cancelButton;
+    private Button downloadButton;
+    private Button regenerateSectionButton;
+    private CheckBox streamingCheckBox;
+    private CheckBox bypassCacheCheckBox;
+    private CheckBox longDocumentCheckBox;
+    private Label cacheStatusLabel;
+    private ResultView resultView;
+    private ProgressIndicator progressIndicator;
+
+    // Read by scheduler threads to serve the displayed tab first
+    private volatile boolean selected;
+
+    // Background work in flight (generation or export); only touched on the FX thread
+    private Future<?> currentTask;
+    // Incremented for every task so that a cancelled task can no longer update the UI;
+    // written on the FX thread only, read by streaming callbacks
+    private volatile long taskSequence;
+    // Export or section regeneration: cancelling it leaves the displayed document as it is
+    private boolean documentTask;
+
+    // Streaming state: chunks are buffered here and drained at most once per FX pulse
+    private final StringBuilder pendingStreamText = new StringBuilder();
+    private final AtomicBoolean streamFlushScheduled = new AtomicBoolean(false);
+    private MarkdownParser streamParser = new MarkdownParser();
+
+    // Parsed form of the displayed result, shared by the renderer and the export
+    private MarkdownDocument currentDocument = MarkdownDocument.EMPTY;
+    // Content type and subject of the displayed result, the form may have been edited since
+    private String documentContentType;
+    private String documentSubject;
+
+    public GenerationTab(int number, GenerationService generationService, HistoryStore historyStore,
+                         PriorityScheduler scheduler, Prefetcher prefetcher, Image generateIcon, Image downloadIcon) {
+        this.generationService = generationService;
+        this.historyStore = historyStore;
+        this.scheduler = scheduler;
+        this.prefetcher = prefetcher;
+        this.requesterName = "ui:tab" + number;
+
+        createComponents(generateIcon, downloadIcon);
+        tab.setContent(layoutComponents());
+        tabProgress.setPrefSize(16, 16);
+        tabProgress.setVisible(false);
+        tab.setGraphic(tabProgress);
+
+        generateButton.setOnAction(event -> {
+            String subject = subjectTextField.getText();
+            if (subject.isEmpty()) {
+                Main.showAlert("Erreur", "Veuillez entrer un sujet.");
+                return;
+            }
+            generateContent(contentTypeComboBox.getValue(), subject);
+        });
+        subjectTextField.setOnAction(event -> generateButton.fire());
+        cancelButton.setOnAction(event -> cancelCurrentTask());
+        downloadButton.setOnAction(event -> exportDocument());
+        regenerateSectionButton.setOnAction(event -> regenerateSection());
+        resultView.selectedIndexProperty().addListener((observable, previous, index) -> updateSectionButton());
+
+        // Speculative prefetch, a no-op unless textgen.prefetch.enabled is set
+        subjectTextField.textProperty().addListener((observable, previous, subject) -> {
+            prefetcher.onSubjectChanged(this, subject);
+            subjectIdle.playFromStart();
+        });
+        contentTypeComboBox.valueProperty().addListener((observable, previous, type) -> subjectIdle.playFromStart());
+        subjectIdle.setOnFinished(event -> {
+            if (currentTask == null && !subjectTextField.getText().trim().isEmpty()) {
+                prefetcher.onSubjectIdle(this, contentTypeComboBox.getValue(), subjectTextField.getText(),
+                        this::firstPrompt);
+            }
+        });
+    }
+
+    public Tab getTab() {
+        return tab;
+    }
+
+    /** Appelé sur le thread JavaFX quand l'onglet devient (ou cesse d'être) l'onglet affiché. */
+    public void setSelected(boolean selected) {
+        this.selected = selected;
+    }
+
+    public boolean isEmpty() {
+        return currentTask == null && resultView.isEmpty() && subjectTextField.getText().isEmpty();
+    }
+
+    public void focusSubject() {
+        subjectTextField.requestFocus();
+    }
+
+    private void createComponents(Image generateIcon, Image downloadIcon) {
+        contentTypeComboBox = new ComboBox<>();
+        contentTypeComboBox.getItems().addAll(Prompts.CONTENT_TYPES);
+        contentTypeComboBox.setValue("Article");
+        contentTypeComboBox.setPrefWidth(200);
+        contentTypeComboBox.getStyleClass().add("styled-combo-box");
+
+        subjectTextField = new TextField();
+        subjectTextField.setPromptText("Entrez le sujet ici");
+        subjectTextField.setPrefWidth(300);
+        subjectTextField.getStyleClass().add("styled-text-field");
+
+        generateButton = new Button("Générer");
+        generateButton.getStyleClass().add("primary-button");
+        generateButton.setPrefWidth(150);
+        if (generateIcon != null) {
+            ImageView generateIconView = new ImageView(generateIcon);
+            generateIconView.setFitHeight(24); // Increased from 16 to 24
+            generateIconView.setFitWidth(24);  // Increased from 16 to 24
+            generateIconView.setPreserveRatio(true);
+            generateButton.setGraphic(generateIconView);
+        }
+
+        downloadButton = new Button("Exporter");
+        downloadButton.getStyleClass().add("secondary-button");
+        if (downloadIcon != null) {
+            ImageView downloadIconView = new ImageView(downloadIcon);
+            downloadIconView.setFitHeight(24); // Increased from 16 to 24
+            downloadIconView.setFitWidth(24);  // Increased from 16 to 24
+            downloadIconView.setPreserveRatio(true);
+            downloadButton.setGraphic(downloadIconView);
+        }
+        downloadButton.setDisable(true); // Disabled until content is generated
+
+        // Rewrites only the section of the selected heading, see SectionRegenerator
+        regenerateSectionButton = new Button("Régénérer la section");
+        regenerateSectionButton.getStyleClass().add("secondary-button");
+        regenerateSectionButton.setTooltip(new Tooltip("Sélectionnez un titre du résultat pour régénérer sa section seule"));
+        regenerateSectionButton.setDisable(true);
+
+        // Streaming mode: render text while Gemini is still generating
+        streamingCheckBox = new CheckBox("Affichage progressif");
+        streamingCheckBox.setSelected(true);
+
+        cancelButton = new Button("Annuler");
+        cancelButton.getStyleClass().add("secondary-button");
+        cancelButton.setDisable(true);
+
+        // Force a fresh API call even when the same subject is already cached
+        bypassCacheCheckBox = new CheckBox("Ignorer le cache");
+
+        // Outline first, then sections generated in parallel (see LongDocumentGenerator)
+        longDocumentCheckBox = new CheckBox("Document long");
+        longDocumentCheckBox.setTooltip(new Tooltip("Génère un plan, puis chaque section en parallèle"));
+        // Long mode is preselected for the content types that need it
+        contentTypeComboBox.valueProperty().addListener((observable, previous, type) ->
+                longDocumentCheckBox.setSelected(isLongByDefault(type)));
+
+        cacheStatusLabel = new Label();
+        cacheStatusLabel.setTextFill(Color.GRAY);
+
+        resultView = new ResultView();
+
+        progressIndicator = new ProgressIndicator();
+        progressIndicator.setVisible(false);
+        progressIndicator.setPrefSize(40, 40);
+    }
+
+    private VBox layoutComponents() {
+        // Input form in a card
+        VBox formCard = new VBox(15);
+        formCard.setPadding(new Insets(20));
+        formCard.getStyleClass().add("card");
+
+        Label promptLabel = new Label("Type de Contenu");
+        promptLabel.getStyleClass().add("label-header");
+        HBox contentTypeRow = new HBox(15);
+        contentTypeRow.setAlignment(Pos.CENTER_LEFT);
+        contentTypeRow.getChildren().addAll(promptLabel, contentTypeComboBox);
+
+        Label subjectLabel = new Label("Sujet");
+        subjectLabel.getStyleClass().add("label-header");
+        HBox subjectRow = new HBox(15);
+        subjectRow.setAlignment(Pos.CENTER_LEFT);
+        subjectRow.getChildren().addAll(subjectLabel, subjectTextField);
+
+        // Generate button directly below subject row
+        HBox buttonRow = new HBox(15);
+        buttonRow.setAlignment(Pos.CENTER_RIGHT);
+        buttonRow.setPadding(new Insets(5, 0, 0, 0));
+        buttonRow.getChildren().addAll(longDocumentCheckBox, bypassCacheCheckBox, streamingCheckBox, cancelButton, generateButton);
+
+        formCard.getChildren().addAll(contentTypeRow, subjectRow, buttonRow);
+
+        // Result card with download button
+        VBox resultCard = new VBox(10);
+        resultCard.setPadding(new Insets(20));
+        resultCard.getStyleClass().add("card");
+        VBox.setVgrow(resultCard, Priority.ALWAYS);
+
+        Label resultLabel = new Label("Résultat");
+        resultLabel.getStyleClass().add("section-header");
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox resultHeaderBox = new HBox(10);
+        resultHeaderBox.setAlignment(Pos.CENTER_LEFT);
+        resultHeaderBox.getChildren().addAll(resultLabel, cacheStatusLabel, spacer, regenerateSectionButton,
+                downloadButton);
+
+        StackPane resultContainer = new StackPane();
+        resultContainer.getChildren().addAll(resultView.getNode(), progressIndicator);
+        StackPane.setAlignment(progressIndicator, Pos.CENTER);
+        VBox.setVgrow(resultContainer, Priority.ALWAYS);
+
+        resultCard.getChildren().addAll(resultHeaderBox, resultContainer);
+
+        VBox contentBox = new VBox(20);
+        contentBox.setPadding(new Insets(20));
+        contentBox.getChildren().addAll(formCard, resultCard);
+        return contentBox;
+    }
+
+    private void generateContent(String contentType, String subject) {
+        String prompt = Prompts.forContent(contentType, subject);
+        // Content types pinned to a model are routed to it, see ModelRouter
+        GenerationService service = generationService.forContentType(contentType);
+        boolean bypassCache = bypassCacheCheckBox.isSelected();
+        subjectIdle.stop();
+        prefetcher.onUserGeneration(this, contentType, subject);
+        cancelCurrentTask();
+        resultView.clear();
+        currentDocument = MarkdownDocument.EMPTY;
+        cacheStatusLabel.setText("");
+        progressIndicator.setVisible(true);
+        generateButton.setDisable(true);
+        downloadButton.setDisable(true);
+        setTitle(subject);
+        documentContentType = contentType;
+        documentSubject = subject;
+
+        if (longDocumentCheckBox.isSelected()) {
+            generateLongDocument(service, contentType, subject, bypassCache);
+            return;
+        }
+        if (streamingCheckBox.isSelected()) {
+            generateContentStreaming(service, contentType, subject, prompt, bypassCache);
+            return;
+        }
+
+        long taskId = ++taskSequence;
+        submitTask(taskId, "", () -> {
+            try {
+                long start = System.nanoTime();
+                GenerationResult result = service.generate(prompt, bypassCache, requester(taskId));
+                recordHistory(service, contentType, subject, prompt, start, result);
+                runIfCurrent(taskId, () -> {
+                    displayFormattedResult(result.getText());
+                    cacheStatusLabel.setText(result.getCacheOutcome().getLabel());
+                    downloadButton.setDisable(false); // Enable download after content is generated
+                    prefetcher.onGenerated(this, contentType, subject, this::firstPrompt);
+                    finishTask();
+                });
+            } catch (RuntimeException e) {
+                runIfCurrent(taskId, () -> showGenerationError(e));
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void generateContentStreaming(GenerationService service, String contentType, String subject, String prompt,
+                                          boolean bypassCache) {
+        synchronized (pendingStreamText) {
+            pendingStreamText.setLength(0);
+        }
+        streamParser = new MarkdownParser();
+
+        long taskId = ++taskSequence;
+        submitTask(taskId, "", () -> {
+            try {
+                // Chunks may arrive on a shared generation thread: drop them once this task is stale
+                long start = System.nanoTime();
+                GenerationResult result = service.stream(prompt, bypassCache, chunk -> {
+                    if (taskId == taskSequence) {
+                        enqueueStreamText(chunk);
+                    }
+                }, requester(taskId));
+                recordHistory(service, contentType, subject, prompt, start, result);
+                runIfCurrent(taskId, () -> {
+                    flushStreamText(true);
+                    cacheStatusLabel.setText(result.getCacheOutcome().getLabel());
+                    downloadButton.setDisable(false);
+                    prefetcher.onGenerated(this, contentType, subject, this::firstPrompt);
+                    finishTask();
+                });
+            } catch (RuntimeException e) {
+                runIfCurrent(taskId, () -> showGenerationError(e));
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void generateLongDocument(GenerationService service, String contentType, String subject, boolean bypassCache) {
+        LongDocumentGenerator generator = LongDocumentGenerator.fromConfig(service);
+
+        long taskId = ++taskSequence;
+        submitTask(taskId, "Plan en cours…", () -> {
+            try {
+                long start = System.nanoTime();
+                String document = generator.generate(contentType, subject, bypassCache, requester(taskId),
+                        (index, total, markdown) -> runIfCurrent(taskId, () -> {
+                            // Sections arrive in order: each one is appended below the previous ones
+                            long renderStart = System.nanoTime();
+                            resultView.append(MarkdownParser.parse(markdown).getBlocks());
+                            Metrics.record(Metrics.Phase.RENDER, renderStart);
+                            progressIndicator.setVisible(false);
+                            cacheStatusLabel.setText("Section " + (index + 1) + "/" + total);
+                        }));
+                // Token usage is not aggregated over the outline and section calls
+                recordHistory(service, contentType, subject, Prompts.forContent(contentType, subject), start,
+                        new GenerationResult(document, bypassCache ? CacheOutcome.BYPASSED : CacheOutcome.MISS));
+                runIfCurrent(taskId, () -> {
+                    // The blocks already on screen, so that their indices match the document's
+                    currentDocument = resultView.getDocument();
+                    cacheStatusLabel.setText("Document complet");
+                    downloadButton.setDisable(false);
+                    prefetcher.onGenerated(this, contentType, subject, this::firstPrompt);
+                    finishTask();
+                });
+            } catch (RuntimeException e) {
+                runIfCurrent(taskId, () -> showGenerationError(e));
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Runs on the worker thread; cache hits are not recorded again
+    private void recordHistory(GenerationService service, String contentType, String subject, String prompt,
+                               long startNanos, GenerationResult result) {
+        if (historyStore == null || result.getCacheOutcome().isHit()) {
+            return;
+        }
+        try {
+            historyStore.append(new HistoryStore.Record(System.currentTimeMillis(), contentType, subject,
+                    service.getModel(), prompt, (System.nanoTime() - startNanos) / 1_000_000,
+                    result.getPromptTokens(), result.getCandidateTokens(), result.getText()));
+        } catch (IOException e) {
+            System.out.println("Warning: could not record history: " + e.getMessage());
+        }
+    }
+
+    /** Affiche un document passé comme s'il venait d'être généré ; Exporter l'exporte à nouveau. */
+    public void openFromHistory(HistoryStore.Record record) {
+        cancelCurrentTask();
+        contentTypeComboBox.setValue(record.getContentType());
+        subjectTextField.setText(record.getSubject());
+        subjectIdle.stop(); // an old document is not a hint of what comes next
+        setTitle(record.getSubject());
+        documentContentType = record.getContentType();
+        documentSubject = record.getSubject();
+        displayFormattedResult(record.getText());
+        cacheStatusLabel.setText("Historique");
+        downloadButton.setDisable(false);
+    }
+
+    // runningLabel replaces the queued notice once a scheduler thread picks the task up
+    private void submitTask(long taskId, String runningLabel, Runnable work) {
+        cacheStatusLabel.setText(QUEUED_LABEL);
+        currentTask = scheduler.submit(() -> selected, () -> {
+            runIfCurrent(taskId, () -> {
+                if (QUEUED_LABEL.equals(cacheStatusLabel.getText())) {
+                    cacheStatusLabel.setText(runningLabel);
+                }
+            });
+            work.run();
+        });
+        cancelButton.setDisable(false);
+        tabProgress.setVisible(true);
+        updateSectionButton();
+    }
+
+    // Shows the estimated wait while the shared rate limiter holds the task's calls back
+    private RateLimiter.Requester requester(long taskId) {
+        return new RateLimiter.Requester(requesterName, waitMillis -> runIfCurrent(taskId, () -> {
+            if (waitMillis > 0) {
+                cacheStatusLabel.setText(QUOTA_WAIT_LABEL + ((waitMillis + 999) / 1000) + " s");
+            } else if (cacheStatusLabel.getText().startsWith(QUOTA_WAIT_LABEL)) {
+                cacheStatusLabel.setText("");
+            }
+        }));
+    }
+
+    // Posts a UI update unless the task has been cancelled or superseded in the meantime
+    private void runIfCurrent(long taskId, Runnable update) {
+        Platform.runLater(() -> {
+            if (taskId == taskSequence) {
+                update.run();
+            }
+        });
+    }
+
+    private void finishTask() {
+        currentTask = null;
+        documentTask = false;
+        cancelButton.setDisable(true);
+        generateButton.setDisable(false);
+        progressIndicator.setVisible(false);
+        tabProgress.setVisible(false);
+        updateSectionButton();
+    }
+
+    private void updateSectionButton() {
+        regenerateSectionButton.setDisable(currentTask != null
+                || !currentDocument.isSection(resultView.selectedIndexProperty().get()));
+    }
+
+    /** Onglet fermé : arrête son travail en cours et ses préchargements. */
+    public void close() {
+        subjectIdle.stop();
+        cancelCurrentTask();
+        prefetcher.onSubjectChanged(this, null);
+    }
+
+    // First prompt this tab would send for a content type: the outline when it makes a long document
+    private String firstPrompt(String contentType, String subject) {
+        boolean longDocument = contentType.equals(contentTypeComboBox.getValue())
+                ? longDocumentCheckBox.isSelected() : isLongByDefault(contentType);
+        return longDocument ? LongDocumentGenerator.fromConfig(generationService).outlinePrompt(contentType, subject)
+                : Prompts.forContent(contentType, subject);
+    }
+
+    // Reports and case studies are the outputs that hit the token limit
+    private static boolean isLongByDefault(String contentType) {
+        return "Rapport".equals(contentType) || "Étude de cas".equals(contentType);
+    }
+
+    /** Annule la génération ou l'export en cours de cet onglet, qu'il tourne ou attende encore. */
+    public void cancelCurrentTask() {
+        if (currentTask == null) {
+            return;
+        }
+        // Interrupting the worker aborts the HTTP exchange or stops the PDF writer at the next line;
+        // a task still waiting for a scheduler thread is simply dropped
+        currentTask.cancel(true);
+        taskSequence++;
+        boolean keepDocument = documentTask;
+        finishTask();
+        if (QUEUED_LABEL.equals(cacheStatusLabel.getText())) {
+            cacheStatusLabel.setText("");
+        }
+        if (keepDocument) {
+            // The exporter deletes the partial file; a dropped section keeps its previous text
+            downloadButton.setDisable(currentDocument.isEmpty());
+            return;
+        }
+        synchronized (pendingStreamText) {
+            pendingStreamText.setLength(0);
+        }
+        resultView.showMessage("Génération annulée.", Color.GRAY);
+    }
+
+    // Called from the network thread for every SSE chunk
+    private void enqueueStreamText(String chunk) {
+        synchronized (pendingStreamText) {
+            pendingStreamText.append(chunk);
+        }
+        // Coalesce: only one pending runLater at a time, whatever the chunk rate
+        if (streamFlushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> flushStreamText(false));
+        }
+    }
+
+    // Runs on the FX thread: renders every complete line received so far
+    private void flushStreamText(boolean endOfStream) {
+        streamFlushScheduled.set(false);
+        String received;
+        synchronized (pendingStreamText) {
+            received = pendingStreamText.toString();
+            pendingStreamText.setLength(0);
+        }
+
+        long start = System.nanoTime();
+        resultView.append(streamParser.feed(received));
+        if (endOfStream) {
+            resultView.append(streamParser.finish());
+            currentDocument = streamParser.getDocument();
+        }
+        Metrics.record(Metrics.Phase.RENDER, start);
+        if (!resultView.isEmpty()) {
+            progressIndicator.setVisible(false);
+        }
+    }
+
+    private void showGenerationError(RuntimeException e) {
+        resultView.clear();
+        if (e instanceof GeminiTimeoutException) {
+            // The stalled exchange has already been aborted: the user can simply try again
+            resultView.showMessage(e.getMessage() + ". Vérifiez la connexion puis relancez la génération.",
+                    Color.DARKORANGE);
+        } else {
+            resultView.showMessage("Erreur : " + e.getMessage(), Color.RED);
+        }
+        finishTask();
+    }
+
+    private void exportDocument() {
+        // One filter per format, plus one writing every format next to each other
+        Map<FileChooser.ExtensionFilter, Set<ExportFormat>> filters = new LinkedHashMap<>();
+        filters.put(new FileChooser.ExtensionFilter("Fichier PDF", "*.pdf"), EnumSet.of(ExportFormat.PDF));
+        filters.put(new FileChooser.ExtensionFilter("Markdown", "*.md"), EnumSet.of(ExportFormat.MARKDOWN));
+        filters.put(new FileChooser.ExtensionFilter("Page HTML", "*.html"), EnumSet.of(ExportFormat.HTML));
+        filters.put(new FileChooser.ExtensionFilter("PDF, Markdown et HTML", "*.pdf", "*.md", "*.html"),
+                EnumSet.allOf(ExportFormat.class));
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Exporter le document");
+        fileChooser.getExtensionFilters().addAll(filters.keySet());
+        fileChooser.setInitialFileName("document");
+
+        File file = fileChooser.showSaveDialog(tab.getTabPane().getScene().getWindow());
+        if (file != null) {
+            Set<ExportFormat> formats = filters.getOrDefault(fileChooser.getSelectedExtensionFilter(),
+                    EnumSet.of(ExportFormat.PDF));
+            Path baseFile = withoutExportExtension(file.toPath());
+            // Snapshot the parsed document on the FX thread, the export itself runs in the background
+            MarkdownDocument document = currentDocument;
+            progressIndicator.setVisible(true);
+            generateButton.setDisable(true);
+
+            long taskId = ++taskSequence;
+            documentTask = true;
+            submitTask(taskId, "Export en cours…", () -> {
+                try {
+                    List<Path> written = ExportPipeline.export(document, baseFile, formats);
+                    StringBuilder paths = new StringBuilder();
+                    for (Path path : written) {
+                        paths.append('\n').append(path.toAbsolutePath());
+                    }
+                    runIfCurrent(taskId, () -> {
+                        finishTask();
+                        cacheStatusLabel.setText("");
+                        Main.showSuccessAlert("Export réussi", "Fichiers enregistrés :" + paths);
+                    });
+                } catch (Exception e) {
+                    runIfCurrent(taskId, () -> {
+                        finishTask();
+                        cacheStatusLabel.setText("");
+                        Main.showAlert("Erreur", "Impossible d'exporter le document : " + e.getMessage());
+                    });
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    // Replaces the selected heading's section in place: only its list cells are rendered again,
+    // and the next export reads the updated document
+    private void regenerateSection() {
+        int start = resultView.selectedIndexProperty().get();
+        MarkdownDocument document = currentDocument;
+        if (currentTask != null || !document.isSection(start)) {
+            return;
+        }
+        int end = document.sectionEnd(start);
+        SectionRegenerator regenerator = new SectionRegenerator(generationService.forContentType(documentContentType));
+        String contentType = documentContentType;
+        String subject = documentSubject;
+        progressIndicator.setVisible(true);
+        generateButton.setDisable(true);
+        downloadButton.setDisable(true);
+
+        long taskId = ++taskSequence;
+        documentTask = true;
+        submitTask(taskId, "Régénération de la section…", () -> {
+            try {
+                List<MarkdownDocument.Block> section = regenerator.regenerate(document, start, contentType, subject,
+                        requester(taskId));
+                runIfCurrent(taskId, () -> {
+                    long renderStart = System.nanoTime();
+                    currentDocument = document.replace(start, end, section);
+                    resultView.replace(start, end, section);
+                    Metrics.record(Metrics.Phase.RENDER, renderStart);
+                    cacheStatusLabel.setText("Section régénérée");
+                    downloadButton.setDisable(false);
+                    finishTask();
+                });
+            } catch (RuntimeException e) {
+                runIfCurrent(taskId, () -> {
+                    finishTask();
+                    cacheStatusLabel.setText("");
+                    downloadButton.setDisable(false);
+                    if (e instanceof GeminiTimeoutException) {
+                        resultView.showMessage(e.getMessage() + ". La section n'a pas changé.", Color.DARKORANGE);
+                    } else {
+                        resultView.showMessage("Erreur : " + e.getMessage() + ". La section n'a pas changé.", Color.RED);
+                    }
+                });
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // "rapport.pdf" -> "rapport": the pipeline appends the extension of each format
+    private static Path withoutExportExtension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && ExportFormat.fromExtension(name.substring(dot + 1).toLowerCase(Locale.ROOT)) != null) {
+            return file.resolveSibling(name.substring(0, dot));
+        }
+        return file;
+    }
+
+    private void displayFormattedResult(String result) {
+        // Parse and model update on the FX thread; cell layout happens in the next pulse
+        long start = System.nanoTime();
+        currentDocument = MarkdownParser.parse(result);
+        resultView.setDocument(currentDocument);
+        Metrics.record(Metrics.Phase.RENDER, start);
+    }
+
+    private void setTitle(String subject) {
+        String title = subject.trim();
+        tab.setText(title.length() > TITLE_MAX_CHARS ? title.substring(0, TITLE_MAX_CHARS - 1) + "…" : title);
+        tab.setTooltip(new Tooltip(title));
+    }
+}
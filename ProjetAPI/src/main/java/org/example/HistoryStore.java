@@ -0,0 +1,577 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Historique persistant des documents générés, consultable sans appeler l'API.
+ *
+ * history.log est un journal en ajout seul : chaque enregistrement est précédé de sa longueur
+ * et de son CRC32, ce qui permet d'écarter au démarrage un enregistrement tronqué par un arrêt
+ * brutal. Le journal est lu par projection mémoire : ouvrir un document ne lit que ses octets.
+ * history.idx contient la position de chaque enregistrement (8 octets par document), ce qui
+ * permet d'ouvrir l'historique sans relire les textes.
+ * L'index inversé (mot → documents) est construit en mémoire à la première recherche,
+ * puis tenu à jour à chaque ajout.
+ *
+ * Un seul processus ouvre l'historique à la fois (verrou exclusif sur history.lock) : deux
+ * instances ajouteraient chacune à leur propre fin de journal et écraseraient leurs documents.
+ */
+public class HistoryStore implements AutoCloseable {
+
+    private static final int FORMAT_VERSION = 1;
+    // Payload length and CRC32 in front of every record
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Latin-1 and Latin Extended-A/B folded once: "É" -> "e", "ç" -> "c"
+    private static final char[] FOLDED = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            String base = COMBINING_MARKS.matcher(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)).replaceAll("");
+            FOLDED[c] = base.length() == 1 ? Character.toLowerCase(base.charAt(0)) : Character.toLowerCase(c);
+        }
+    }
+
+    /** Document complet, tel qu'il est écrit dans le journal. */
+    public static final class Record {
+        private final long timestamp;
+        private final String contentType;
+        private final String subject;
+        private final String model;
+        private final String prompt;
+        private final long latencyMillis;
+        private final int promptTokens;
+        private final int candidateTokens;
+        private final String text;
+
+        public Record(long timestamp, String contentType, String subject, String model, String prompt,
+                      long latencyMillis, int promptTokens, int candidateTokens, String text) {
+            this.timestamp = timestamp;
+            this.contentType = contentType;
+            this.subject = subject;
+            this.model = model;
+            this.prompt = prompt;
+            this.latencyMillis = latencyMillis;
+            this.promptTokens = promptTokens;
+            this.candidateTokens = candidateTokens;
+            this.text = text;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public String getPrompt() {
+            return prompt;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public int getPromptTokens() {
+            return promptTokens;
+        }
+
+        public int getCandidateTokens() {
+            return candidateTokens;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /** Résumé d'un document gardé en mémoire pour la liste ; le texte reste dans le journal. */
+    public static final class Entry {
+        private final int id;
+        private final long timestamp;
+        private final String contentType;
+        private final String subject;
+        private final String model;
+        private final long latencyMillis;
+        private final int promptTokens;
+        private final int candidateTokens;
+
+        Entry(int id, Record record) {
+            this.id = id;
+            this.timestamp = record.timestamp;
+            this.contentType = record.contentType;
+            this.subject = record.subject;
+            this.model = record.model;
+            this.latencyMillis = record.latencyMillis;
+            this.promptTokens = record.promptTokens;
+            this.candidateTokens = record.candidateTokens;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public int getPromptTokens() {
+            return promptTokens;
+        }
+
+        public int getCandidateTokens() {
+            return candidateTokens;
+        }
+    }
+
+    /** Identifiants des documents contenant un mot, en ordre croissant. */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            // Documents are indexed in id order: a repeated word only has to check the last id
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    // Held open for the exclusive lock, released by close()
+    private final FileChannel lock;
+    private final FileChannel log;
+    private final FileChannel index;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private long logSize;
+    private MappedByteBuffer mapped;
+
+    // Built lazily by the first search; the sorted copy of the words serves prefix lookups
+    // and is only rebuilt when an append has added new words
+    private Map<String, Postings> terms;
+    private String[] sortedTerms;
+
+    private HistoryStore(FileChannel lock, FileChannel log, FileChannel index) {
+        this.lock = lock;
+        this.log = log;
+        this.index = index;
+    }
+
+    /**
+     * Historique stocké dans textgen.history.dir (par défaut ~/.javatextgen/history).
+     */
+    public static HistoryStore fromConfig() throws IOException {
+        String defaultDir = Paths.get(System.getProperty("user.home"), ".javatextgen", "history").toString();
+        return open(Paths.get(AppConfig.get("textgen.history.dir", defaultDir)));
+    }
+
+    /**
+     * @throws IOException si le dossier est illisible ou si une autre instance a déjà ouvert l'historique
+     */
+    public static HistoryStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        // A separate lock file: on Windows a locked region of the journal could no longer be mapped
+        FileChannel lock = FileChannel.open(directory.resolve("history.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileChannel log = null;
+        FileChannel index = null;
+        try {
+            boolean locked;
+            try {
+                locked = lock.tryLock() != null;
+            } catch (OverlappingFileLockException e) {
+                locked = false; // already open in this JVM
+            }
+            if (!locked) {
+                throw new IOException("historique déjà ouvert par une autre instance : " + directory);
+            }
+            log = FileChannel.open(directory.resolve("history.log"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(directory.resolve("history.idx"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            HistoryStore store = new HistoryStore(lock, log, index);
+            store.load();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(index);
+            closeQuietly(log);
+            closeQuietly(lock);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // already failing
+        }
+    }
+
+    private void load() throws IOException {
+        logSize = log.size();
+
+        ByteBuffer stored = ByteBuffer.allocate((int) (index.size() / 8 * 8));
+        while (stored.hasRemaining() && index.read(stored, stored.position()) > 0) {
+            // read the whole index
+        }
+        stored.flip();
+        long previous = -1;
+        while (stored.remaining() >= 8) {
+            long offset = stored.getLong();
+            if (offset <= previous || offset >= logSize) {
+                break;
+            }
+            offsets.add(offset);
+            previous = offset;
+        }
+        int indexed = offsets.size();
+
+        // Only the last indexed record is checked: earlier ones were complete when the next was written
+        long end = 0;
+        while (!offsets.isEmpty()) {
+            end = recordEnd(offsets.get(offsets.size() - 1));
+            if (end > 0) {
+                break;
+            }
+            offsets.remove(offsets.size() - 1);
+        }
+        if (offsets.isEmpty()) {
+            end = 0;
+        }
+        // Records written after the last index update (crash between the two writes)
+        for (long next = recordEnd(end); next > 0; next = recordEnd(end)) {
+            offsets.add(end);
+            end = next;
+        }
+        if (end < logSize) {
+            System.out.println("Warning: discarding " + (logSize - end) + " bytes of truncated history");
+            log.truncate(end);
+            logSize = end;
+        }
+        // Mapped only now: Windows refuses to truncate a file that is still mapped
+        remap();
+        if (offsets.size() != indexed || index.size() != offsets.size() * 8L) {
+            rewriteIndex();
+        }
+
+        for (int id = 0; id < offsets.size(); id++) {
+            entries.add(new Entry(id, decode(offsets.get(id), false)));
+        }
+    }
+
+    /**
+     * @return la fin de l'enregistrement qui commence à offset, ou -1 s'il est incomplet ou corrompu
+     */
+    private long recordEnd(long offset) throws IOException {
+        if (offset + RECORD_HEADER_BYTES > logSize) {
+            return -1;
+        }
+        // Read through the channel: the journal is not mapped until its torn tail has been cut
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(log, header, offset);
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        long end = offset + RECORD_HEADER_BYTES + length;
+        if (length < 0 || end > logSize) {
+            return -1;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(log, payload, offset + RECORD_HEADER_BYTES);
+        payload.flip();
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        return (int) checksum.getValue() == crc ? end : -1;
+    }
+
+    private void rewriteIndex() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(offsets.size() * 8);
+        for (long offset : offsets) {
+            buffer.putLong(offset);
+        }
+        buffer.flip();
+        index.truncate(0);
+        writeFully(index, buffer, 0);
+    }
+
+    private void remap() throws IOException {
+        if (logSize > Integer.MAX_VALUE) {
+            throw new IOException("Historique trop volumineux pour être projeté en mémoire (" + logSize + " octets)");
+        }
+        mapped = log.map(FileChannel.MapMode.READ_ONLY, 0, logSize);
+    }
+
+    /**
+     * Ajoute un document à la fin du journal et de l'index.
+     * Les écritures ne sont pas synchronisées sur le disque une par une : après un arrêt brutal
+     * du système, les derniers documents peuvent manquer, mais jamais apparaître tronqués.
+     */
+    public synchronized Entry append(Record record) throws IOException {
+        byte[] payload = encode(record);
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt((int) checksum.getValue()).put(payload).flip();
+
+        long offset = logSize;
+        writeFully(log, buffer, offset);
+        writeFully(index, ByteBuffer.allocate(8).putLong(offset).flip(), offsets.size() * 8L);
+        logSize += buffer.capacity();
+
+        Entry entry = new Entry(entries.size(), record);
+        offsets.add(offset);
+        entries.add(entry);
+        if (terms != null) {
+            indexTerms(entry.getId(), record);
+        }
+        Metrics.increment("history.appends");
+        return entry;
+    }
+
+    /** Relit le document complet depuis le journal. */
+    public synchronized Record read(int id) throws IOException {
+        long offset = offsets.get(id);
+        if (offset >= mapped.capacity()) {
+            // Appended since the last mapping
+            remap();
+        }
+        return decode(offset, true);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Documents contenant tous les mots de la requête (ou un mot qui commence par chacun d'eux),
+     * du plus récent au plus ancien. Une requête vide renvoie les derniers documents.
+     * Accents et casse sont ignorés.
+     */
+    public synchronized List<Entry> search(String query, int limit) throws IOException {
+        long start = System.nanoTime();
+        List<String> words = tokenize(query);
+        BitSet matches = null;
+        if (!words.isEmpty()) {
+            buildTermsIfNeeded();
+            for (String word : words) {
+                BitSet wordMatches = new BitSet(entries.size());
+                // Every indexed term starting with the word
+                int first = Arrays.binarySearch(sortedTerms, word);
+                for (int t = first >= 0 ? first : -first - 1; t < sortedTerms.length && sortedTerms[t].startsWith(word); t++) {
+                    Postings postings = terms.get(sortedTerms[t]);
+                    for (int i = 0; i < postings.size; i++) {
+                        wordMatches.set(postings.ids[i]);
+                    }
+                }
+                if (matches == null) {
+                    matches = wordMatches;
+                } else {
+                    matches.and(wordMatches);
+                }
+            }
+        }
+
+        List<Entry> results = new ArrayList<>();
+        for (int id = entries.size() - 1; id >= 0 && results.size() < limit; id--) {
+            if (matches != null) {
+                id = matches.previousSetBit(id);
+                if (id < 0) {
+                    break;
+                }
+            }
+            results.add(entries.get(id));
+        }
+        Metrics.record(Metrics.Phase.HISTORY_SEARCH, start);
+        return Collections.unmodifiableList(results);
+    }
+
+    private void buildTermsIfNeeded() throws IOException {
+        if (terms == null) {
+            if (logSize > mapped.capacity()) {
+                remap();
+            }
+            terms = new HashMap<>();
+            for (int id = 0; id < offsets.size(); id++) {
+                indexTerms(id, decode(offsets.get(id), true));
+            }
+        }
+        if (sortedTerms == null) {
+            sortedTerms = terms.keySet().toArray(new String[0]);
+            Arrays.sort(sortedTerms);
+        }
+    }
+
+    private void indexTerms(int id, Record record) {
+        for (String text : new String[]{record.contentType, record.subject, record.text}) {
+            forEachTerm(text, term -> {
+                Postings postings = terms.get(term);
+                if (postings == null) {
+                    postings = new Postings();
+                    terms.put(term, postings);
+                    sortedTerms = null;
+                }
+                postings.add(id);
+            });
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        forEachTerm(text, words::add);
+        return words;
+    }
+
+    // Lower case, accents removed, split on anything that is not a letter or a digit
+    private static void forEachTerm(String text, Consumer<String> action) {
+        StringBuilder word = new StringBuilder(32);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? fold(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (word.length() >= MIN_TERM_LENGTH) {
+                    action.accept(word.toString());
+                }
+                word.setLength(0);
+            }
+        }
+    }
+
+    private static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return c < FOLDED.length ? FOLDED[c] : Character.toLowerCase(c);
+    }
+
+    private static byte[] encode(Record record) {
+        byte[][] strings = {
+                bytes(record.contentType), bytes(record.subject), bytes(record.model), bytes(record.prompt), bytes(record.text)
+        };
+        int size = 4 + 8 + 8 + 4 + 4;
+        for (byte[] string : strings) {
+            size += 4 + string.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(FORMAT_VERSION).putLong(record.timestamp).putLong(record.latencyMillis)
+                .putInt(record.promptTokens).putInt(record.candidateTokens);
+        for (byte[] string : strings) {
+            buffer.putInt(string.length).put(string);
+        }
+        return buffer.array();
+    }
+
+    // withText = false skips the prompt and the text, which is all the list needs
+    private Record decode(long offset, boolean withText) throws IOException {
+        ByteBuffer view = mapped.duplicate();
+        view.position((int) offset + RECORD_HEADER_BYTES);
+        if (view.getInt() != FORMAT_VERSION) {
+            throw new IOException("Format d'historique inconnu à la position " + offset);
+        }
+        long timestamp = view.getLong();
+        long latencyMillis = view.getLong();
+        int promptTokens = view.getInt();
+        int candidateTokens = view.getInt();
+        String contentType = string(view);
+        String subject = string(view);
+        String model = string(view);
+        String prompt = withText ? string(view) : null;
+        String text = withText ? string(view) : null;
+        return new Record(timestamp, contentType, subject, model, prompt, latencyMillis,
+                promptTokens, candidateTokens, text);
+    }
+
+    private static byte[] bytes(String value) {
+        return (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer view) {
+        byte[] bytes = new byte[view.getInt()];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("fin de l'historique inattendue");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            log.close();
+        } finally {
+            try {
+                index.close();
+            } finally {
+                lock.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.example;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Fenêtre Historique : recherche plein texte dans les documents déjà générés
+ * ({@link HistoryStore}), réouverture dans la fenêtre principale et export PDF,
+ * sans appel à l'API.
+ */
+public class HistoryView {
+
+    private static final int MAX_RESULTS = 200;
+
+    private final HistoryStore store;
+    private final Consumer<HistoryStore.Record> onOpen;
+    private final Stage stage = new Stage();
+    private final TextField searchField = new TextField();
+    private final ObservableList<HistoryStore.Entry> results = FXCollections.observableArrayList();
+    private final ListView<HistoryStore.Entry> resultList = new ListView<>(results);
+    private final Label statusLabel = new Label();
+    private final Button openButton = new Button("Ouvrir");
+    private final Button exportButton = new Button("Exporter en PDF");
+
+    // Searches run in the background; only the latest one may update the list
+    private long searchSequence;
+
+    /**
+     * @param onOpen appelé sur le thread JavaFX avec le document à afficher
+     */
+    public HistoryView(Window owner, HistoryStore store, Consumer<HistoryStore.Record> onOpen) {
+        this.store = store;
+        this.onOpen = onOpen;
+
+        searchField.setPromptText("Rechercher dans l'historique");
+        searchField.getStyleClass().add("styled-text-field");
+        searchField.textProperty().addListener((observable, previous, query) -> search(query));
+
+        resultList.setCellFactory(view -> new EntryCell());
+        VBox.setVgrow(resultList, Priority.ALWAYS);
+        resultList.getSelectionModel().selectedItemProperty().addListener((observable, previous, entry) -> {
+            openButton.setDisable(entry == null);
+            exportButton.setDisable(entry == null);
+        });
+        resultList.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                openSelected();
+            }
+        });
+
+        openButton.getStyleClass().add("primary-button");
+        openButton.setDisable(true);
+        openButton.setOnAction(event -> openSelected());
+        exportButton.getStyleClass().add("secondary-button");
+        exportButton.setDisable(true);
+        exportButton.setOnAction(event -> exportSelected());
+        statusLabel.setTextFill(Color.GRAY);
+
+        VBox root = new VBox(10, searchField, resultList, statusLabel, new HBox(10, openButton, exportButton));
+        root.setPadding(new Insets(20));
+        root.getStyleClass().add("card");
+
+        Scene scene = new Scene(root, 600, 480);
+        scene.getStylesheets().add(getClass().getResource("/css/style.css").toExternalForm());
+        stage.setTitle("Historique");
+        stage.initOwner(owner);
+        stage.setScene(scene);
+    }
+
+    public void show() {
+        search(searchField.getText());
+        stage.show();
+        stage.toFront();
+    }
+
+    private void search(String query) {
+        long sequence = ++searchSequence;
+        // The first search builds the word index, which reads every stored document
+        AppExecutors.background().submit(() -> {
+            try {
+                List<HistoryStore.Entry> found = store.search(query, MAX_RESULTS);
+                Platform.runLater(() -> {
+                    if (sequence == searchSequence) {
+                        results.setAll(found);
+                        statusLabel.setText(found.isEmpty() ? "Aucun document." : found.size() + " document(s)");
+                    }
+                });
+            } catch (IOException e) {
+                Platform.runLater(() -> statusLabel.setText("Erreur : " + e.getMessage()));
+            }
+        });
+    }
+
+    // The read waits for the store, which a first search holds while it indexes every document:
+    // it runs in the background and hands the record back on the JavaFX thread
+    private void readSelected(Consumer<HistoryStore.Record> then) {
+        HistoryStore.Entry entry = resultList.getSelectionModel().getSelectedItem();
+        if (entry == null) {
+            return;
+        }
+        String status = statusLabel.getText();
+        statusLabel.setText("Lecture du document…");
+        AppExecutors.background().submit(() -> {
+            try {
+                HistoryStore.Record record = store.read(entry.getId());
+                Platform.runLater(() -> {
+                    statusLabel.setText(status);
+                    then.accept(record);
+                });
+            } catch (IOException e) {
+                Platform.runLater(() -> statusLabel.setText("Erreur : " + e.getMessage()));
+            }
+        });
+    }
+
+    private void openSelected() {
+        readSelected(onOpen);
+    }
+
+    private void exportSelected() {
+        readSelected(this::export);
+    }
+
+    private void export(HistoryStore.Record record) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Enregistrer le PDF");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Fichier PDF", "*.pdf"));
+        fileChooser.setInitialFileName("document.pdf");
+        File file = fileChooser.showSaveDialog(stage);
+        if (file == null) {
+            return;
+        }
+        statusLabel.setText("Export en cours…");
+        AppExecutors.background().submit(() -> {
+            try {
+                PdfExporter.export(record.getText(), file);
+                Platform.runLater(() -> statusLabel.setText("PDF enregistré : " + file.getAbsolutePath()));
+            } catch (IOException e) {
+                Platform.runLater(() -> statusLabel.setText("Impossible de créer le PDF : " + e.getMessage()));
+            }
+        });
+    }
+
+    private static final class EntryCell extends ListCell<HistoryStore.Entry> {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+
+        @Override
+        protected void updateItem(HistoryStore.Entry entry, boolean empty) {
+            super.updateItem(entry, empty);
+            if (empty || entry == null) {
+                setText(null);
+                return;
+            }
+            String tokens = entry.getCandidateTokens() > 0
+                    ? " · " + (entry.getPromptTokens() + entry.getCandidateTokens()) + " tokens" : "";
+            setText(entry.getContentType() + " : " + entry.getSubject() + "\n"
+                    + dateFormat.format(new Date(entry.getTimestamp())) + " · " + entry.getModel()
+                    + " · " + entry.getLatencyMillis() + " ms" + tokens);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Page HTML autonome : titres, listes à puces regroupées dans un seul &lt;ul&gt;, paragraphes,
+ * gras et italique. Le premier titre sert de titre de page.
+ */
+final class HtmlWriter implements DocumentWriter {
+
+    @Override
+    public void write(MarkdownDocument document, Path file) throws IOException {
+        try (Writer out = ExportPipeline.newWriter(file)) {
+            out.write("<!DOCTYPE html>\n<html lang=\"fr\">\n<head>\n<meta charset=\"utf-8\">\n<title>");
+            writeEscaped(out, title(document));
+            out.write("</title>\n</head>\n<body>\n");
+
+            boolean inList = false;
+            for (MarkdownDocument.Block block : document.getBlocks()) {
+                boolean bullet = block.getType() == MarkdownDocument.BlockType.BULLET;
+                if (bullet != inList) {
+                    out.write(bullet ? "<ul>\n" : "</ul>\n");
+                    inList = bullet;
+                }
+                switch (block.getType()) {
+                    case HEADING:
+                        out.write("<h" + block.getLevel() + ">");
+                        writeSpans(out, block);
+                        out.write("</h" + block.getLevel() + ">\n");
+                        break;
+                    case BULLET:
+                        out.write("<li>");
+                        writeSpans(out, block);
+                        out.write("</li>\n");
+                        break;
+                    case BLANK:
+                        break;
+                    default:
+                        out.write("<p>");
+                        writeSpans(out, block);
+                        out.write("</p>\n");
+                        break;
+                }
+            }
+            if (inList) {
+                out.write("</ul>\n");
+            }
+            out.write("</body>\n</html>\n");
+        }
+    }
+
+    private static String title(MarkdownDocument document) {
+        for (MarkdownDocument.Block block : document.getBlocks()) {
+            if (block.getType() == MarkdownDocument.BlockType.HEADING) {
+                return block.getText().trim();
+            }
+        }
+        return "Document";
+    }
+
+    private static void writeSpans(Writer out, MarkdownDocument.Block block) throws IOException {
+        for (MarkdownDocument.Span span : block.getSpans()) {
+            String tag = span.isBold() ? "strong" : span.isItalic() ? "em" : null;
+            if (tag != null) {
+                out.write("<" + tag + ">");
+            }
+            writeEscaped(out, span.getText());
+            if (tag != null) {
+                out.write("</" + tag + ">");
+            }
+        }
+    }
+
+    private static void writeEscaped(Writer out, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                default:
+                    out.write(c);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.example;
+
+/**
+ * Point d'entrée qui n'étend pas Application.
+ * Le lanceur Java initialise JavaFX avant d'appeler main() dès que la classe principale étend
+ * Application ; passer par cette classe permet aux modes batch et serveur de démarrer sans affichage.
+ */
+public class Launcher {
+
+    public static void main(String[] args) {
+        Main.main(args);
+    }
+}
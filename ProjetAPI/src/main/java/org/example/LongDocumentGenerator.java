@@ -0,0 +1,133 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Génération de documents longs en deux temps : Gemini propose d'abord un plan, puis chaque
+ * section est générée par un appel distinct, au plus parallelism à la fois.
+ * Chaque appel reste loin de la limite de tokens de sortie, et la durée totale suit la section
+ * la plus lente plutôt que la somme de toutes.
+ *
+ * Les sections sont livrées dans l'ordre du plan : une section terminée en avance attend que
+ * toutes les précédentes soient livrées.
+ */
+public class LongDocumentGenerator {
+
+    // "1. Titre", "2) Titre", "- Titre", "* Titre"
+    private static final Pattern OUTLINE_ITEM = Pattern.compile("^\\s*(?:\\d+[.)]|[-*•])\\s+(.+)$");
+
+    /** Reçoit les sections dans l'ordre, sur le thread appelant de {@link #generate}. */
+    public interface SectionListener {
+        void onSection(int index, int total, String markdown);
+    }
+
+    private final GenerationService service;
+    private final int parallelism;
+    private final int maxSections;
+
+    public LongDocumentGenerator(GenerationService service, int parallelism, int maxSections) {
+        this.service = service;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxSections = Math.max(1, maxSections);
+    }
+
+    /**
+     * Générateur configuré par textgen.longdoc.parallelism et textgen.longdoc.maxSections.
+     */
+    public static LongDocumentGenerator fromConfig(GenerationService service) {
+        return new LongDocumentGenerator(service, AppConfig.getInt("textgen.longdoc.parallelism", 4),
+                AppConfig.getInt("textgen.longdoc.maxSections", 8));
+    }
+
+    /** Premier appel d'un document long, celui qu'un préchargement peut anticiper ({@link Prefetcher}). */
+    public String outlinePrompt(String contentType, String subject) {
+        return Prompts.forOutline(contentType, subject, maxSections);
+    }
+
+    /**
+     * Génère le document complet et renvoie son Markdown (titre puis sections dans l'ordre).
+     * Interrompre le thread appelant annule les sections en cours.
+     *
+     * @param requester file du limiteur de débit utilisée par le plan et toutes les sections
+     */
+    public String generate(String contentType, String subject, boolean bypassCache, RateLimiter.Requester requester,
+                           SectionListener listener) {
+        GenerationService service = this.service.forContentType(contentType);
+        String outlineText = service.generate(outlinePrompt(contentType, subject), bypassCache,
+                requester).getText();
+        List<String> outline = parseOutline(outlineText, maxSections);
+        if (outline.isEmpty()) {
+            throw new GeminiException(0, "Plan vide renvoyé par Gemini : " + outlineText);
+        }
+
+        String title = "# " + subject.trim() + "\n\n";
+        StringBuilder document = new StringBuilder(title);
+        listener.onSection(-1, outline.size(), title);
+
+        ExecutorService executor = AppExecutors.newBoundedExecutor("section-worker", Math.min(parallelism, outline.size()));
+        try {
+            ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+            AtomicReferenceArray<String> sections = new AtomicReferenceArray<>(outline.size());
+            for (int i = 0; i < outline.size(); i++) {
+                int index = i;
+                completion.submit(() -> {
+                    sections.set(index, service.generate(Prompts.forSection(contentType, subject, outline, index), bypassCache,
+                            requester).getText().trim() + "\n\n");
+                    return index;
+                });
+            }
+
+            int nextToDeliver = 0;
+            for (int done = 0; done < outline.size(); done++) {
+                completion.take().get();
+                // Deliver the longest prefix of finished sections
+                while (nextToDeliver < sections.length() && sections.get(nextToDeliver) != null) {
+                    String section = sections.get(nextToDeliver);
+                    document.append(section);
+                    Metrics.increment("longdoc.sections");
+                    listener.onSection(nextToDeliver, sections.length(), section);
+                    nextToDeliver++;
+                }
+            }
+            return document.toString().trim();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeminiException("Requête Gemini interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GeminiException("Erreur lors de la génération d'une section : " + cause.getMessage(), cause);
+        } finally {
+            // Stops the sections still running after a failure or a cancellation
+            executor.shutdownNow();
+        }
+    }
+
+    static List<String> parseOutline(String text, int maxSections) {
+        List<String> numbered = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            String cleaned = line.replace("**", "").replace("#", "").trim();
+            if (cleaned.isEmpty()) {
+                continue;
+            }
+            Matcher item = OUTLINE_ITEM.matcher(cleaned);
+            if (item.matches()) {
+                numbered.add(item.group(1).trim());
+            }
+            lines.add(cleaned);
+        }
+        // Models sometimes drop the numbering: fall back to one section per line
+        List<String> outline = numbered.isEmpty() ? lines : numbered;
+        return outline.size() > maxSections ? new ArrayList<>(outline.subList(0, maxSections)) : outline;
+    }
+}
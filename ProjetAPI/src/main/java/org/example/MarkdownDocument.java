@@ -0,0 +1,125 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Modèle immuable d'un texte Markdown généré : une suite de blocs (titres, listes,
+ * paragraphes, lignes vides) composés de segments de texte normal, gras ou italique.
+ * Il est produit une seule fois par {@link MarkdownParser} puis partagé par l'affichage
+ * JavaFX et l'export PDF.
+ */
+public final class MarkdownDocument {
+
+    public enum BlockType {
+        HEADING, BULLET, NUMBERED, PARAGRAPH, BLANK
+    }
+
+    public static final class Span {
+        private final String text;
+        private final boolean bold;
+        private final boolean italic;
+
+        public Span(String text, boolean bold, boolean italic) {
+            this.text = text;
+            this.bold = bold;
+            this.italic = italic;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isBold() {
+            return bold;
+        }
+
+        public boolean isItalic() {
+            return italic;
+        }
+    }
+
+    public static final class Block {
+        private final BlockType type;
+        private final int level;
+        private final List<Span> spans;
+
+        public Block(BlockType type, int level, List<Span> spans) {
+            this.type = type;
+            this.level = level;
+            this.spans = Collections.unmodifiableList(spans);
+        }
+
+        public BlockType getType() {
+            return type;
+        }
+
+        /** Niveau du titre (1 pour "#"), 0 pour les autres blocs. */
+        public int getLevel() {
+            return level;
+        }
+
+        public List<Span> getSpans() {
+            return spans;
+        }
+
+        /** Texte du bloc sans marques de formatage. */
+        public String getText() {
+            if (spans.size() == 1) {
+                return spans.get(0).getText();
+            }
+            StringBuilder text = new StringBuilder();
+            for (Span span : spans) {
+                text.append(span.getText());
+            }
+            return text.toString();
+        }
+    }
+
+    public static final MarkdownDocument EMPTY = new MarkdownDocument(new ArrayList<>());
+
+    private final List<Block> blocks;
+
+    public MarkdownDocument(List<Block> blocks) {
+        this.blocks = Collections.unmodifiableList(new ArrayList<>(blocks));
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    /**
+     * Fin (exclue) de la section ouverte par le titre d'indice start : le titre suivant de même
+     * niveau ou de niveau supérieur, sinon la fin du document.
+     */
+    public int sectionEnd(int start) {
+        int level = blocks.get(start).getLevel();
+        for (int i = start + 1; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            if (block.getType() == BlockType.HEADING && block.getLevel() <= level) {
+                return i;
+            }
+        }
+        return blocks.size();
+    }
+
+    /** Vrai si le bloc d'indice index est un titre dont la section n'est pas tout le document. */
+    public boolean isSection(int index) {
+        return index >= 0 && index < blocks.size() && blocks.get(index).getType() == BlockType.HEADING
+                && (index > 0 || sectionEnd(index) < blocks.size());
+    }
+
+    /** Copie où les blocs [start, end) sont remplacés par replacement. */
+    public MarkdownDocument replace(int start, int end, List<Block> replacement) {
+        List<Block> replaced = new ArrayList<>(blocks.size() - (end - start) + replacement.size());
+        replaced.addAll(blocks.subList(0, start));
+        replaced.addAll(replacement);
+        replaced.addAll(blocks.subList(end, blocks.size()));
+        return new MarkdownDocument(replaced);
+    }
+}
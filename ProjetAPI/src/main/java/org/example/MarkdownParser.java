@@ -0,0 +1,200 @@
+package org.example;
+
+import org.example.MarkdownDocument.Block;
+import org.example.MarkdownDocument.BlockType;
+import org.example.MarkdownDocument.Span;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Analyseur Markdown en une passe, sans expressions régulières.
+ * Il reconnaît les conventions utilisées par Gemini et par l'affichage :
+ * titres "#" à "###" (dont le texte est gardé tel quel), puces "* ", "· ", ". ", "- ",
+ * listes numérotées "1.", lignes vides, et à l'intérieur des autres lignes **gras** et *italique*,
+ * où "\*" et "\\" donnent un astérisque et une barre oblique inverse littéraux.
+ *
+ * Une instance peut être alimentée fragment par fragment (mode streaming) : chaque ligne
+ * complète produit un bloc dès qu'elle est reçue.
+ */
+public class MarkdownParser {
+
+    private final StringBuilder pending = new StringBuilder();
+    // Characters of `pending` already checked for a line break
+    private int scanned;
+    private final List<Block> blocks = new ArrayList<>();
+
+    public static MarkdownDocument parse(CharSequence text) {
+        MarkdownParser parser = new MarkdownParser();
+        parser.feed(text);
+        parser.finish();
+        return parser.getDocument();
+    }
+
+    /**
+     * Ajoute un fragment de texte et renvoie les blocs des lignes qu'il a complétées.
+     */
+    public List<Block> feed(CharSequence chunk) {
+        pending.append(chunk);
+        List<Block> completed = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = scanned; i < pending.length(); i++) {
+            if (pending.charAt(i) == '\n') {
+                completed.add(parseLine(pending, lineStart, i));
+                lineStart = i + 1;
+            }
+        }
+        pending.delete(0, lineStart);
+        scanned = pending.length();
+        blocks.addAll(completed);
+        return completed;
+    }
+
+    /**
+     * Termine le flux : la dernière ligne, même sans retour à la ligne, devient un bloc.
+     */
+    public List<Block> finish() {
+        if (pending.length() == 0) {
+            return Collections.emptyList();
+        }
+        Block last = parseLine(pending, 0, pending.length());
+        pending.setLength(0);
+        scanned = 0;
+        blocks.add(last);
+        return Collections.singletonList(last);
+    }
+
+    public MarkdownDocument getDocument() {
+        return new MarkdownDocument(blocks);
+    }
+
+    static Block parseLine(CharSequence source, int start, int end) {
+        if (end > start && source.charAt(end - 1) == '\r') {
+            end--;
+        }
+        String line = source.subSequence(start, end).toString();
+
+        int level = headingLevel(line);
+        if (level > 0) {
+            // Heading text is kept as written, stars included, as the original renderer did
+            return new Block(BlockType.HEADING, level, level + 1 < line.length()
+                    ? Collections.singletonList(new Span(line.substring(level + 1), false, false))
+                    : Collections.emptyList());
+        }
+        if (line.length() >= 2 && line.charAt(1) == ' ' && isBulletMarker(line.charAt(0))) {
+            return new Block(BlockType.BULLET, 0, parseInline(line, 2));
+        }
+
+        int first = firstNonWhitespace(line);
+        if (first == line.length()) {
+            return new Block(BlockType.BLANK, 0, Collections.emptyList());
+        }
+        if (isNumbered(line, first)) {
+            return new Block(BlockType.NUMBERED, 0, parseInline(line, 0));
+        }
+        return new Block(BlockType.PARAGRAPH, 0, parseInline(line, 0));
+    }
+
+    // "# " to "### " at the very start of the line; deeper levels stay ordinary paragraphs
+    private static int headingLevel(String line) {
+        int level = 0;
+        while (level < line.length() && level < 4 && line.charAt(level) == '#') {
+            level++;
+        }
+        return level > 0 && level <= 3 && level < line.length() && line.charAt(level) == ' ' ? level : 0;
+    }
+
+    private static boolean isBulletMarker(char c) {
+        return c == '*' || c == '·' || c == '.' || c == '-';
+    }
+
+    // One or more digits followed by '.', after optional indentation
+    private static boolean isNumbered(String line, int first) {
+        int i = first;
+        while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            i++;
+        }
+        return i > first && i < line.length() && line.charAt(i) == '.';
+    }
+
+    private static int firstNonWhitespace(String line) {
+        int i = 0;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Découpe une ligne en segments normal / **gras** / *italique*.
+     * Chaque caractère est examiné au plus deux fois (une recherche de marque fermante
+     * est suivie de la consommation du texte parcouru), donc le coût reste linéaire même
+     * pour les lignes pleines d'astérisques. Une marque sans fermeture est gardée telle quelle.
+     * Un astérisque échappé ("\*", comme l'écrit {@link MarkdownWriter}) n'ouvre ni ne ferme rien.
+     */
+    static List<Span> parseInline(String line, int from) {
+        List<Span> spans = new ArrayList<>(1);
+        int runStart = from;
+        int i = from;
+        while (i < line.length()) {
+            if (isEscape(line, i)) {
+                i += 2;
+                continue;
+            }
+            if (line.charAt(i) != '*') {
+                i++;
+                continue;
+            }
+            boolean bold = i + 1 < line.length() && line.charAt(i + 1) == '*';
+            int contentStart = i + (bold ? 2 : 1);
+            int close = findClose(line, contentStart, bold);
+            if (close < 0) {
+                // No closing marker: the rest of the line is plain text
+                break;
+            }
+            addSpan(spans, line, runStart, i, false, false);
+            addSpan(spans, line, contentStart, close, bold, !bold);
+            i = close + (bold ? 2 : 1);
+            runStart = i;
+        }
+        addSpan(spans, line, runStart, line.length(), false, false);
+        return spans;
+    }
+
+    // "\*" or "\\": the backslash only protects the next character
+    private static boolean isEscape(String line, int i) {
+        return line.charAt(i) == '\\' && i + 1 < line.length()
+                && (line.charAt(i + 1) == '*' || line.charAt(i + 1) == '\\');
+    }
+
+    // Next unescaped "*" (or "**" when bold) from `from`, or -1
+    private static int findClose(String line, int from, boolean bold) {
+        for (int i = from; i < line.length(); i++) {
+            if (isEscape(line, i)) {
+                i++;
+            } else if (line.charAt(i) == '*' && (!bold || i + 1 < line.length() && line.charAt(i + 1) == '*')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void addSpan(List<Span> spans, String line, int start, int end, boolean bold, boolean italic) {
+        if (end > start) {
+            String text = start == 0 && end == line.length() ? line : line.substring(start, end);
+            spans.add(new Span(text.indexOf('\\') < 0 ? text : unescape(text), bold, italic));
+        }
+    }
+
+    private static String unescape(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            if (isEscape(text, i)) {
+                i++;
+            }
+            out.append(text.charAt(i));
+        }
+        return out.toString();
+    }
+}
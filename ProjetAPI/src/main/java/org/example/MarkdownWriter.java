@@ -0,0 +1,80 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Réécrit le modèle en Markdown : seules les marques comprises par {@link MarkdownParser}
+ * sont produites. Dans le texte des lignes, les astérisques et les barres obliques inverses
+ * sont échappés ("\*", "\\"), que MarkdownParser relit comme du texte ; le texte des
+ * titres, que l'analyseur garde tel quel, est écrit sans échappement. Relire le fichier
+ * redonne donc le même document.
+ */
+final class MarkdownWriter implements DocumentWriter {
+
+    @Override
+    public void write(MarkdownDocument document, Path file) throws IOException {
+        try (Writer out = ExportPipeline.newWriter(file)) {
+            write(document.getBlocks(), out);
+        }
+    }
+
+    /** Markdown d'une partie du document, par exemple une section envoyée à Gemini. */
+    static String toMarkdown(List<MarkdownDocument.Block> blocks) {
+        StringWriter out = new StringWriter();
+        try {
+            write(blocks, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    private static void write(List<MarkdownDocument.Block> blocks, Writer out) throws IOException {
+        for (MarkdownDocument.Block block : blocks) {
+            switch (block.getType()) {
+                case HEADING:
+                    for (int i = 0; i < block.getLevel(); i++) {
+                        out.write('#');
+                    }
+                    out.write(' ');
+                    break;
+                case BULLET:
+                    out.write("- ");
+                    break;
+                default:
+                    break;
+            }
+            boolean heading = block.getType() == MarkdownDocument.BlockType.HEADING;
+            for (MarkdownDocument.Span span : block.getSpans()) {
+                String marker = span.isBold() ? "**" : span.isItalic() ? "*" : "";
+                out.write(marker);
+                if (heading) {
+                    out.write(span.getText());
+                } else {
+                    writeEscaped(out, span.getText());
+                }
+                out.write(marker);
+            }
+            out.write('\n');
+        }
+    }
+
+    private static void writeEscaped(Writer out, String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '*' || c == '\\') {
+                out.write(text, start, i - start);
+                out.write('\\');
+                out.write(c);
+                start = i + 1;
+            }
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
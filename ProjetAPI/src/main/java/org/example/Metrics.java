@@ -0,0 +1,218 @@
+package org.example;
+
+import org.json.JSONObject;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques du pipeline de génération, partagées par toute l'application :
+ * un histogramme de latences par phase, des compteurs nommés et les erreurs par code HTTP.
+ * Elles sont consultables dans le panneau Diagnostics, par JMX, et exportées en JSON
+ * par le mode batch (--metrics-out).
+ */
+public final class Metrics {
+
+    /**
+     * Phases mesurées. HttpClient ne publie pas la durée de connexion (DNS, TCP, TLS) :
+     * elle est comprise dans TTFB, qui s'arrête à la réception des en-têtes de réponse.
+     */
+    public enum Phase {
+        TTFB("ttfb", "En-têtes reçus"),
+        FIRST_TEXT("firstText", "Premier texte (flux)"),
+        TOTAL("total", "Requête complète"),
+        DECODE("decode", "Décodage JSON"),
+        RENDER("render", "Affichage"),
+        EXPORT("export", "Export PDF"),
+        HISTORY_SEARCH("historySearch", "Recherche historique"),
+        RATE_WAIT("rateWait", "Attente quota");
+
+        private final String key;
+        private final String label;
+
+        Phase(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public static final String REQUESTS = "gemini.requests";
+    public static final String CANCELLED = "gemini.cancelled";
+    public static final String PROMPT_TOKENS = "tokens.prompt";
+    public static final String CANDIDATE_TOKENS = "tokens.candidates";
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private static final Map<Phase, LatencyHistogram> HISTOGRAMS = new EnumMap<>(Phase.class);
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<Integer, LongAdder> ERRORS = new ConcurrentHashMap<>();
+    private static boolean mbeanRegistered;
+
+    static {
+        for (Phase phase : Phase.values()) {
+            HISTOGRAMS.put(phase, new LatencyHistogram());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /** Enregistre la durée écoulée depuis startNanos (valeur de System.nanoTime()). */
+    public static void record(Phase phase, long startNanos) {
+        recordNanos(phase, System.nanoTime() - startNanos);
+    }
+
+    public static void recordNanos(Phase phase, long nanos) {
+        HISTOGRAMS.get(phase).recordNanos(nanos);
+    }
+
+    public static void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public static void add(String counter, long delta) {
+        COUNTERS.computeIfAbsent(counter, name -> new LongAdder()).add(delta);
+    }
+
+    public static long get(String counter) {
+        LongAdder adder = COUNTERS.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public static void recordTokens(GeminiResponse response) {
+        add(PROMPT_TOKENS, response.getPromptTokenCount());
+        add(CANDIDATE_TOKENS, response.getCandidatesTokenCount());
+    }
+
+    /** @param status code HTTP, ou 0 pour une erreur réseau */
+    public static void recordError(int status) {
+        ERRORS.computeIfAbsent(status, code -> new LongAdder()).increment();
+    }
+
+    static LatencyHistogram.Snapshot snapshot(Phase phase) {
+        return HISTOGRAMS.get(phase).snapshot();
+    }
+
+    public static Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, adder) -> values.put(name, adder.sum()));
+        return values;
+    }
+
+    public static Map<String, Long> errorsByStatus() {
+        Map<String, Long> values = new TreeMap<>();
+        ERRORS.forEach((status, adder) -> values.put(String.valueOf(status), adder.sum()));
+        return values;
+    }
+
+    public static Map<String, Double> latencyMillis() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram.Snapshot snapshot = snapshot(phase);
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            values.put(phase.getKey() + ".count", (double) snapshot.getCount());
+            values.put(phase.getKey() + ".mean", snapshot.getMeanMillis());
+            for (double percentile : PERCENTILES) {
+                values.put(phase.getKey() + ".p" + (int) percentile, snapshot.percentileMillis(percentile));
+            }
+            values.put(phase.getKey() + ".max", snapshot.getMaxMillis());
+        }
+        return values;
+    }
+
+    public static JSONObject toJson() {
+        JSONObject latencies = new JSONObject();
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram.Snapshot snapshot = snapshot(phase);
+            JSONObject json = new JSONObject()
+                    .put("count", snapshot.getCount())
+                    .put("meanMs", round(snapshot.getMeanMillis()))
+                    .put("maxMs", round(snapshot.getMaxMillis()));
+            for (double percentile : PERCENTILES) {
+                json.put("p" + (int) percentile + "Ms", round(snapshot.percentileMillis(percentile)));
+            }
+            latencies.put(phase.getKey(), json);
+        }
+        return new JSONObject()
+                .put("latency", latencies)
+                .put("counters", new JSONObject(counters()))
+                .put("errorsByStatus", new JSONObject(errorsByStatus()));
+    }
+
+    public static void writeJson(Path file) throws IOException {
+        Files.writeString(file, toJson().toString(2), StandardCharsets.UTF_8);
+    }
+
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+        COUNTERS.clear();
+        ERRORS.clear();
+    }
+
+    /** Publie les métriques sur le serveur JMX de la JVM ; les appels suivants sont sans effet. */
+    public static synchronized void registerMBean() {
+        if (mbeanRegistered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName("org.example:type=Metrics"));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another class loader in the same JVM
+        } catch (JMException e) {
+            System.out.println("Warning: metrics not published over JMX: " + e.getMessage());
+        }
+        mbeanRegistered = true;
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 1000) / 1000.0;
+    }
+
+    private static final class MBean implements MetricsMXBean {
+        @Override
+        public Map<String, Double> getLatencyMillis() {
+            return latencyMillis();
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return counters();
+        }
+
+        @Override
+        public Map<String, Long> getErrorsByStatus() {
+            return errorsByStatus();
+        }
+
+        @Override
+        public String getJson() {
+            return toJson().toString(2);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
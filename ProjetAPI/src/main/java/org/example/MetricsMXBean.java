@@ -0,0 +1,22 @@
+package org.example;
+
+import java.util.Map;
+
+/**
+ * Vue JMX des métriques de génération (objet org.example:type=Metrics dans JConsole ou VisualVM).
+ */
+public interface MetricsMXBean {
+
+    /** Durées par phase, en millisecondes : "total.p50", "total.p99", "ttfb.max"... */
+    Map<String, Double> getLatencyMillis();
+
+    /** Compteurs nommés : requêtes, tokens, résultats du cache... */
+    Map<String, Long> getCounters();
+
+    /** Erreurs par code HTTP ; "0" regroupe les erreurs réseau. */
+    Map<String, Long> getErrorsByStatus();
+
+    String getJson();
+
+    void reset();
+}
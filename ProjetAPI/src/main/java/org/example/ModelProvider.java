@@ -0,0 +1,82 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Fournisseur de texte derrière {@link GenerationService}.
+ * {@link GeminiClient} appelle l'API ; {@link RecordReplayProvider} enregistre les échanges
+ * réels sur disque ou les rejoue, pour les essais de charge sans clé ni quota.
+ */
+public interface ModelProvider {
+
+    /** Nom du modèle, utilisé dans les clés du cache et l'historique. */
+    String getModel();
+
+    /**
+     * Appel bloquant. Interrompre le thread appelant abandonne l'appel
+     * ({@link GeminiException} "Requête Gemini interrompue") ; l'échéance passée, il est abandonné
+     * avec une {@link GeminiTimeoutException}.
+     */
+    GeminiResponse generate(String prompt, Deadline deadline);
+
+    /**
+     * Variante en flux : chaque fragment de texte est transmis à onText dès qu'il est disponible ;
+     * la réponse renvoyée contient le texte complet.
+     */
+    GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText);
+
+    /** Appel bloquant sans échéance, bornés seulement par les délais du fournisseur. */
+    default GeminiResponse generate(String prompt) {
+        return generate(prompt, Deadline.none());
+    }
+
+    /**
+     * Fournisseur à utiliser pour un type de contenu : celui-ci, sauf si le type est épinglé
+     * à un autre modèle ({@link ModelRouter}).
+     */
+    default ModelProvider forContentType(String contentType) {
+        return this;
+    }
+
+    /**
+     * Clés API de GEMINI_API_KEYS (séparées par des virgules), sinon de GEMINI_API_KEY ;
+     * liste vide si aucune n'est définie.
+     */
+    static List<String> apiKeys() {
+        String value = System.getenv("GEMINI_API_KEYS");
+        if (value == null || value.trim().isEmpty()) {
+            value = System.getenv("GEMINI_API_KEY");
+        }
+        List<String> keys = new ArrayList<>();
+        if (value != null) {
+            for (String key : value.split(",")) {
+                if (!key.trim().isEmpty()) {
+                    keys.add(key.trim());
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Fournisseur choisi par textgen.provider : "gemini" (par défaut), "record" (Gemini, avec
+     * enregistrement de chaque échange) ou "replay" (échanges enregistrés, sans appel réseau).
+     * Avec plusieurs clés ou modèles, les appels Gemini passent par un {@link ModelRouter}.
+     */
+    static ModelProvider fromConfig(List<String> apiKeys) {
+        String mode = AppConfig.get("textgen.provider", "gemini").toLowerCase(Locale.ROOT);
+        switch (mode) {
+            case "gemini":
+                return ModelRouter.create(apiKeys);
+            case "record":
+                return RecordReplayProvider.recording(ModelRouter.create(apiKeys), RecordReplayProvider.configuredDirectory());
+            case "replay":
+                return RecordReplayProvider.fromConfig();
+            default:
+                throw new IllegalArgumentException("textgen.provider inconnu : " + mode);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Répartit les appels entre plusieurs points d'accès (un modèle avec une clé API). Chaque appel
+ * va au point d'accès sain dont la latence moyenne, pondérée par ses appels en cours et son taux
+ * d'erreur, est la plus faible. Latence et taux d'erreur sont des moyennes mobiles
+ * exponentielles ; un point d'accès sans mesure depuis 10 s est essayé en priorité, pour que ses
+ * chiffres restent à jour, et un échec récent éloigne le nouvel essai du point d'accès fautif.
+ *
+ * Après ejectAfter échecs d'affilée (réseau, 429 ou 5xx), un point d'accès est écarté pendant
+ * ejectMillis ; passé ce délai il reçoit de nouveau des appels, et un nouvel échec l'écarte
+ * aussitôt. Si tous sont écartés, l'appel part vers celui qui revient le plus tôt.
+ *
+ * Un type de contenu peut préférer un modèle ({@link #forContentType}) : ses appels vont aux
+ * points d'accès de ce modèle, ou à ceux des appels non épinglés si aucun n'est sain. Un modèle
+ * qui ne sert qu'aux épinglages ne reçoit jamais d'appel non épinglé.
+ */
+public class ModelRouter implements ModelProvider {
+
+    public static final String ROUTED_PREFIX = "router.routed.";
+    public static final String ERRORS_PREFIX = "router.errors.";
+    public static final String EJECTED = "router.ejected";
+    public static final String PIN_FALLBACK = "router.pinFallback";
+
+    // Weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.2;
+    // An endpoint left unused this long is measured again, so that one slow call is not held against it
+    private static final long STALE_NANOS = 10_000_000_000L;
+
+    /** Un modèle avec une clé API ; ses statistiques sont protégées par le verrou du routeur. */
+    public static final class Endpoint {
+        private final String name;
+        private final ModelProvider provider;
+        private double latencyMillis = -1; // no sample yet
+        private double errorRate;
+        private int inFlight;
+        private int consecutiveFailures;
+        private long lastUsed;
+        private long ejectedUntil; // 0 when never ejected
+
+        /**
+         * @param name nom affiché dans les métriques ; ne doit pas contenir la clé
+         */
+        public Endpoint(String name, ModelProvider provider) {
+            this.name = name;
+            this.provider = provider;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getModel() {
+            return provider.getModel();
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    // Models of unpinned calls
+    private final Set<String> pool;
+    private final Map<String, String> pins;
+    private final int ejectAfter;
+    private final long ejectNanos;
+
+    /**
+     * @param endpoints points d'accès, le premier du pool donne le modèle par défaut
+     * @param pool      modèles des appels non épinglés
+     * @param pins      type de contenu vers modèle préféré
+     */
+    public ModelRouter(List<Endpoint> endpoints, Set<String> pool, Map<String, String> pins, int ejectAfter,
+                       long ejectMillis) {
+        Set<String> served = new LinkedHashSet<>();
+        endpoints.forEach(endpoint -> served.add(endpoint.getModel()));
+        if (pool.isEmpty() || !served.containsAll(pool)) {
+            throw new IllegalArgumentException("aucun point d'accès pour certains modèles de " + pool);
+        }
+        this.endpoints = new ArrayList<>(endpoints);
+        this.pool = new LinkedHashSet<>(pool);
+        this.pins = new LinkedHashMap<>(pins);
+        this.ejectAfter = Math.max(1, ejectAfter);
+        this.ejectNanos = ejectMillis * 1_000_000;
+    }
+
+    /**
+     * Fournisseur Gemini pour les clés données et les modèles de textgen.router.models
+     * (par défaut textgen.model), plus ceux de textgen.router.pins ("Rapport=gemini-1.5-pro-latest,...")
+     * réservés aux types de contenu épinglés.
+     * Avec une seule clé et un seul modèle, renvoie directement le {@link GeminiClient}.
+     * Éviction réglée par textgen.router.ejectAfter et textgen.router.ejectMs.
+     */
+    public static ModelProvider create(List<String> apiKeys) {
+        Set<String> pool = new LinkedHashSet<>(split(AppConfig.get("textgen.router.models",
+                AppConfig.get("textgen.model", GeminiClient.DEFAULT_MODEL))));
+        Set<String> models = new LinkedHashSet<>(pool);
+        Map<String, String> pins = new LinkedHashMap<>();
+        for (String pin : split(AppConfig.get("textgen.router.pins", ""))) {
+            int equals = pin.indexOf('=');
+            if (equals <= 0 || equals == pin.length() - 1) {
+                System.out.println("Warning: invalid value in textgen.router.pins: " + pin);
+                continue;
+            }
+            String model = pin.substring(equals + 1).trim();
+            pins.put(pin.substring(0, equals).trim(), model);
+            models.add(model);
+        }
+        if (apiKeys.size() == 1 && models.size() == 1) {
+            return GeminiClient.create(apiKeys.get(0), models.iterator().next());
+        }
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (String model : models) {
+            for (int i = 0; i < apiKeys.size(); i++) {
+                String name = apiKeys.size() == 1 ? model : model + "@key" + (i + 1);
+                endpoints.add(new Endpoint(name, GeminiClient.create(apiKeys.get(i), model)));
+            }
+        }
+        return new ModelRouter(endpoints, pool, pins, AppConfig.getInt("textgen.router.ejectAfter", 3),
+                AppConfig.getLong("textgen.router.ejectMs", 30_000));
+    }
+
+    private static List<String> split(String list) {
+        List<String> values = new ArrayList<>();
+        for (String value : list.split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    /** Modèle des réponses non épinglées, utilisé dans les clés du cache. */
+    @Override
+    public String getModel() {
+        return pool.iterator().next();
+    }
+
+    @Override
+    public ModelProvider forContentType(String contentType) {
+        String model = pins.get(contentType);
+        return model == null ? this : new Pinned(model);
+    }
+
+    @Override
+    public GeminiResponse generate(String prompt, Deadline deadline) {
+        return route(null, endpoint -> endpoint.provider.generate(prompt, deadline), null);
+    }
+
+    @Override
+    public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+        return stream(null, prompt, deadline, onText);
+    }
+
+    /** Instantané des statistiques, un point d'accès par ligne, pour /health et les journaux. */
+    public synchronized List<String> describe() {
+        long now = System.nanoTime();
+        List<String> lines = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            lines.add(String.format("%s latence=%s erreurs=%.0f%% enCours=%d%s", endpoint.name,
+                    endpoint.latencyMillis < 0 ? "?" : Math.round(endpoint.latencyMillis) + "ms",
+                    endpoint.errorRate * 100, endpoint.inFlight,
+                    isEjected(endpoint, now) ? " écarté" : ""));
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
+    // Streaming latency is the time to the first chunk: total time mostly reflects the answer length
+    private GeminiResponse stream(String model, String prompt, Deadline deadline, Consumer<String> onText) {
+        AtomicLong firstChunkNanos = new AtomicLong();
+        return route(model, endpoint -> endpoint.provider.streamGenerate(prompt, deadline, chunk -> {
+            firstChunkNanos.compareAndSet(0, System.nanoTime());
+            onText.accept(chunk);
+        }), firstChunkNanos::get);
+    }
+
+    private interface Attempt {
+        GeminiResponse call(Endpoint endpoint);
+    }
+
+    // firstByteNanos is null for blocking calls, whose latency is the whole call
+    private GeminiResponse route(String model, Attempt attempt, LongSupplier firstByteNanos) {
+        Endpoint endpoint = choose(model);
+        long start = System.nanoTime();
+        GeminiResponse response;
+        try {
+            response = attempt.call(endpoint);
+        } catch (GeminiException e) {
+            onFailure(endpoint, e);
+            throw e;
+        } catch (RuntimeException e) {
+            release(endpoint, false, 0);
+            throw e;
+        }
+        long end = firstByteNanos == null || firstByteNanos.getAsLong() == 0 ? System.nanoTime()
+                : firstByteNanos.getAsLong();
+        release(endpoint, true, end - start);
+        return response;
+    }
+
+    private synchronized Endpoint choose(String model) {
+        long now = System.nanoTime();
+        Endpoint best = best(model, now);
+        if (best == null && model != null) {
+            best = best(null, now);
+            if (best != null) {
+                Metrics.increment(PIN_FALLBACK);
+            }
+        }
+        if (best == null) {
+            // Everything is ejected: the endpoint that comes back first is the likeliest to answer
+            for (Endpoint endpoint : endpoints) {
+                if (!serves(endpoint, model) && !serves(endpoint, null)) {
+                    continue;
+                }
+                if (best == null || endpoint.ejectedUntil - best.ejectedUntil < 0) {
+                    best = endpoint;
+                }
+            }
+        }
+        if (now - best.lastUsed > STALE_NANOS) {
+            best.latencyMillis = -1; // the next sample starts the average afresh
+        }
+        best.inFlight++;
+        best.lastUsed = now;
+        Metrics.increment(ROUTED_PREFIX + best.name);
+        return best;
+    }
+
+    // Lowest expected wait among the healthy endpoints of model (the pool's when null)
+    private Endpoint best(String model, long now) {
+        Endpoint best = null;
+        double bestScore = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (!serves(endpoint, model) || isEjected(endpoint, now)) {
+                continue;
+            }
+            double score = score(endpoint, now);
+            if (best == null || score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // A pinned call uses its model's endpoints, an unpinned one those of the pool
+    private boolean serves(Endpoint endpoint, String model) {
+        return model == null ? pool.contains(endpoint.getModel()) : model.equals(endpoint.getModel());
+    }
+
+    private static boolean isEjected(Endpoint endpoint, long now) {
+        return endpoint.ejectedUntil != 0 && endpoint.ejectedUntil - now > 0;
+    }
+
+    // Unmeasured or stale endpoints score lowest, ties going to the least busy one
+    private static double score(Endpoint endpoint, long now) {
+        if (endpoint.latencyMillis < 0 || now - endpoint.lastUsed > STALE_NANOS) {
+            return endpoint.inFlight * 1e-6;
+        }
+        // Recent failures weigh more than the average: a retry goes elsewhere if an endpoint is close
+        return endpoint.latencyMillis * (1 + endpoint.inFlight) * (1 + 2 * endpoint.consecutiveFailures)
+                / Math.max(0.05, 1 - endpoint.errorRate);
+    }
+
+    private synchronized void release(Endpoint endpoint, boolean measured, long nanos) {
+        endpoint.inFlight--;
+        if (measured) {
+            double millis = nanos / 1e6;
+            endpoint.latencyMillis = endpoint.latencyMillis < 0 ? millis
+                    : endpoint.latencyMillis + ALPHA * (millis - endpoint.latencyMillis);
+            endpoint.errorRate -= ALPHA * endpoint.errorRate;
+            endpoint.consecutiveFailures = 0;
+        }
+    }
+
+    private synchronized void onFailure(Endpoint endpoint, GeminiException e) {
+        endpoint.inFlight--;
+        // Cancellations, the caller's own deadline and bad requests say nothing about the endpoint
+        if (Thread.currentThread().isInterrupted() || GeminiTimeoutException.isDeadline(e)
+                || e.getStatusCode() != 0 && e.getStatusCode() != 429 && e.getStatusCode() < 500) {
+            return;
+        }
+        Metrics.increment(ERRORS_PREFIX + endpoint.name);
+        endpoint.errorRate += ALPHA * (1 - endpoint.errorRate);
+        endpoint.consecutiveFailures++;
+        if (endpoint.consecutiveFailures >= ejectAfter) {
+            endpoint.ejectedUntil = System.nanoTime() + ejectNanos;
+            Metrics.increment(EJECTED);
+        }
+    }
+
+    // Requests of a content type pinned to one model
+    private final class Pinned implements ModelProvider {
+        private final String model;
+
+        Pinned(String model) {
+            this.model = model;
+        }
+
+        @Override
+        public String getModel() {
+            return model;
+        }
+
+        @Override
+        public GeminiResponse generate(String prompt, Deadline deadline) {
+            return route(model, endpoint -> endpoint.provider.generate(prompt, deadline), null);
+        }
+
+        @Override
+        public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+            return stream(model, prompt, deadline, onText);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.example;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Export PDF d'un document Markdown, indépendant de l'interface JavaFX
+ * (utilisé par la fenêtre comme par le mode batch).
+ *
+ * Les lignes sont coupées entre les mots d'après la largeur réelle des glyphes
+ * ({@link PDFont#getStringWidth}), mesurée une seule fois par caractère et par police.
+ * Au-delà de textgen.pdf.maxHeapMb, PDFBox stocke le document dans un fichier temporaire
+ * au lieu du tas, ce qui garde la mémoire stable quand le batch exporte des milliers de PDF.
+ */
+public final class PdfExporter {
+
+    private static final float MARGIN = 50;
+    private static final float BODY_SIZE = 12;
+    private static final float LINE_HEIGHT = 1.25f;
+    private static final float BULLET_INDENT = 14;
+
+    // Standard 14 fonts are immutable and shared, so their width caches can be too
+    private static final Map<PDFont, WidthCache> WIDTH_CACHES = new HashMap<>();
+
+    private PdfExporter() {
+    }
+
+    public static void export(String markdown, File file) throws IOException {
+        export(MarkdownParser.parse(markdown), file);
+    }
+
+    public static void export(MarkdownDocument markdown, File file) throws IOException {
+        long start = System.nanoTime();
+        PDDocument document = new PDDocument(memoryUsageSetting());
+        try {
+            new Layout(document).render(markdown);
+        } catch (IOException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+
+        try (OutputStream out = ExportPipeline.newOutputStream(file.toPath())) {
+            document.save(out);
+        } catch (IOException e) {
+            // Never leave a truncated PDF behind
+            file.delete();
+            throw e;
+        } finally {
+            document.close();
+        }
+        Metrics.record(Metrics.Phase.EXPORT, start);
+    }
+
+    private static MemoryUsageSetting memoryUsageSetting() {
+        long maxHeapBytes = AppConfig.getLong("textgen.pdf.maxHeapMb", 16) * 1024 * 1024;
+        return MemoryUsageSetting.setupMixed(maxHeapBytes);
+    }
+
+    static PDFont font(boolean bold, boolean italic) {
+        if (bold) {
+            return italic ? PDType1Font.HELVETICA_BOLD_OBLIQUE : PDType1Font.HELVETICA_BOLD;
+        }
+        return italic ? PDType1Font.HELVETICA_OBLIQUE : PDType1Font.HELVETICA;
+    }
+
+    static WidthCache widths(PDFont font) {
+        synchronized (WIDTH_CACHES) {
+            return WIDTH_CACHES.computeIfAbsent(font, WidthCache::new);
+        }
+    }
+
+    /**
+     * Largeur de chaque caractère pour une police, en unités de glyphe (1/1000 de la taille).
+     * Les caractères que la police ne sait pas encoder sont remplacés par '?'.
+     */
+    static final class WidthCache {
+        private final PDFont font;
+        private final float[] latin = new float[256];
+        private final Map<Character, Float> others = new HashMap<>();
+
+        WidthCache(PDFont font) {
+            this.font = font;
+            for (char c = 0; c < latin.length; c++) {
+                latin[c] = Float.NaN;
+            }
+        }
+
+        synchronized float width(char c) {
+            if (c < latin.length) {
+                if (Float.isNaN(latin[c])) {
+                    latin[c] = measure(c);
+                }
+                return latin[c];
+            }
+            return others.computeIfAbsent(c, this::measure);
+        }
+
+        boolean canEncode(char c) {
+            return width(c) >= 0;
+        }
+
+        private float measure(char c) {
+            try {
+                return font.getStringWidth(String.valueOf(c));
+            } catch (IOException | IllegalArgumentException e) {
+                return -1; // marks the character as unsupported
+            }
+        }
+
+        float width(CharSequence text) {
+            float total = 0;
+            for (int i = 0; i < text.length(); i++) {
+                float w = width(text.charAt(i));
+                total += w >= 0 ? w : width('?');
+            }
+            return total;
+        }
+
+        String sanitize(String text) {
+            StringBuilder safe = null;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (!canEncode(c)) {
+                    if (safe == null) {
+                        safe = new StringBuilder(text.length()).append(text, 0, i);
+                    }
+                    safe.append(c == '\t' ? ' ' : '?');
+                } else if (safe != null) {
+                    safe.append(c);
+                }
+            }
+            return safe == null ? text : safe.toString();
+        }
+    }
+
+    /** Portion de ligne écrite dans une seule police. */
+    private static final class Run {
+        final PDFont font;
+        final String text;
+
+        Run(PDFont font, String text) {
+            this.font = font;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Mise en page séquentielle : une page est écrite puis fermée avant de passer à la suivante.
+     */
+    private static final class Layout {
+        private final PDDocument document;
+        private final PDRectangle pageSize = PDRectangle.LETTER;
+        private final float lineWidth = pageSize.getWidth() - 2 * MARGIN;
+
+        private PDPageContentStream contentStream;
+        private float yPosition;
+
+        Layout(PDDocument document) {
+            this.document = document;
+        }
+
+        void render(MarkdownDocument markdown) throws IOException {
+            newPage();
+            try {
+                for (MarkdownDocument.Block block : markdown.getBlocks()) {
+                    // Cancellation point: the UI interrupts this thread when the user clicks "Annuler"
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Export PDF annulé");
+                    }
+                    renderBlock(block);
+                }
+            } finally {
+                // Always close the content stream
+                contentStream.close();
+            }
+        }
+
+        private void renderBlock(MarkdownDocument.Block block) throws IOException {
+            switch (block.getType()) {
+                case BLANK:
+                    yPosition -= BODY_SIZE * LINE_HEIGHT;
+                    break;
+                case HEADING:
+                    float size = block.getLevel() == 1 ? 18 : block.getLevel() == 2 ? 16 : 14;
+                    writeWrapped(block.getSpans(), size, true, 0);
+                    break;
+                case BULLET:
+                    writeWrapped(block.getSpans(), BODY_SIZE, false, BULLET_INDENT);
+                    break;
+                default:
+                    writeWrapped(block.getSpans(), BODY_SIZE, false, 0);
+                    break;
+            }
+        }
+
+        /**
+         * Coupe les segments en lignes d'au plus lineWidth points, entre les mots quand c'est possible.
+         * Une puce est dessinée dans le retrait de la première ligne.
+         */
+        private void writeWrapped(List<MarkdownDocument.Span> spans, float size, boolean forceBold,
+                                  float hangingIndent) throws IOException {
+            float available = lineWidth - hangingIndent;
+            float scale = size / 1000f;
+            List<Run> line = new ArrayList<>();
+            float lineUsed = 0;
+            boolean firstLine = true;
+
+            for (MarkdownDocument.Span span : spans) {
+                PDFont font = font(forceBold || span.isBold(), span.isItalic());
+                WidthCache widths = widths(font);
+                String text = widths.sanitize(span.getText());
+                StringBuilder current = new StringBuilder();
+
+                int i = 0;
+                while (i < text.length()) {
+                    // Next word including its trailing spaces
+                    int end = i;
+                    while (end < text.length() && text.charAt(end) != ' ') {
+                        end++;
+                    }
+                    while (end < text.length() && text.charAt(end) == ' ') {
+                        end++;
+                    }
+                    String word = text.substring(i, end);
+                    float wordWidth = widths.width(word.trim()) * scale;
+
+                    if (lineUsed + wordWidth > available && (lineUsed > 0 || current.length() > 0)) {
+                        flushRun(line, font, current);
+                        writeLine(line, size, hangingIndent, firstLine && hangingIndent > 0);
+                        firstLine = false;
+                        line.clear();
+                        lineUsed = 0;
+                    }
+                    if (wordWidth > available) {
+                        // A single word wider than the line: cut it by characters
+                        for (int c = 0; c < word.length(); c++) {
+                            float charWidth = widths.width(word.charAt(c)) * scale;
+                            if (lineUsed + charWidth > available && current.length() > 0) {
+                                flushRun(line, font, current);
+                                writeLine(line, size, hangingIndent, firstLine && hangingIndent > 0);
+                                firstLine = false;
+                                line.clear();
+                                lineUsed = 0;
+                            }
+                            current.append(word.charAt(c));
+                            lineUsed += charWidth;
+                        }
+                    } else {
+                        current.append(word);
+                        lineUsed += widths.width(word) * scale;
+                    }
+                    i = end;
+                }
+                flushRun(line, font, current);
+            }
+            if (!line.isEmpty() || firstLine) {
+                writeLine(line, size, hangingIndent, firstLine && hangingIndent > 0);
+            }
+        }
+
+        private void flushRun(List<Run> line, PDFont font, StringBuilder text) {
+            if (text.length() > 0) {
+                line.add(new Run(font, text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        private void writeLine(List<Run> runs, float size, float x, boolean withBullet) throws IOException {
+            float leading = size * LINE_HEIGHT;
+            if (yPosition - leading < MARGIN) {
+                contentStream.close();
+                newPage();
+            }
+            yPosition -= leading;
+
+            contentStream.beginText();
+            if (withBullet) {
+                contentStream.setFont(PDType1Font.HELVETICA, size);
+                contentStream.newLineAtOffset(MARGIN + x - BULLET_INDENT, yPosition);
+                contentStream.showText("•");
+                contentStream.newLineAtOffset(BULLET_INDENT, 0);
+            } else {
+                contentStream.newLineAtOffset(MARGIN + x, yPosition);
+            }
+            for (Run run : runs) {
+                contentStream.setFont(run.font, size);
+                contentStream.showText(run.text);
+            }
+            contentStream.endText();
+        }
+
+        private void newPage() throws IOException {
+            PDPage page = new PDPage(pageSize);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            yPosition = pageSize.getHeight() - MARGIN;
+        }
+    }
+}
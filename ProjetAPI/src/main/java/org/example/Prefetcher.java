@@ -0,0 +1,292 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * Préchargement spéculatif, désactivé par défaut (textgen.prefetch.enabled).
+ * Après une génération, ou quand le sujet n'a pas changé depuis un instant, les types de contenu
+ * que l'utilisateur demandera probablement ensuite pour ce sujet sont générés en arrière-plan et
+ * rangés dans le cache de réponses : le clic suivant est servi par le cache, ou rejoint l'appel
+ * encore en cours.
+ *
+ * Les préchargements passent un par un, seulement si aucune tâche de l'utilisateur n'attend un
+ * thread et si le quota est libre, et dans la limite de textgen.prefetch.tokensPerHour.
+ * Changer de sujet annule ceux de l'onglet. Les compteurs prefetch.* disent s'ils sont rentables :
+ * prefetch.hits sur prefetch.completed donne le taux de réussite, prefetch.wastedTokens ce
+ * qu'ont coûté les préchargements jamais utilisés.
+ */
+public class Prefetcher {
+
+    public static final String STARTED = "prefetch.started";
+    public static final String COMPLETED = "prefetch.completed";
+    public static final String HITS = "prefetch.hits";
+    public static final String CANCELLED = "prefetch.cancelled";
+    public static final String SKIPPED = "prefetch.skipped";
+    public static final String TOKENS = "prefetch.tokens";
+    public static final String WASTED_TOKENS = "prefetch.wastedTokens";
+
+    // Likeliest follow-ups before anything has been learned: a summary, then the longer forms
+    private static final List<String> DEFAULT_ORDER = List.of("Résumé", "Article", "Rapport", "Contenu de Blog",
+            "Étude de cas");
+    // Unused prefetches tracked at most, the oldest count as wasted beyond that
+    private static final int MAX_TRACKED = 50;
+    private static final long HOUR_NANOS = 3_600_000_000_000L;
+
+    private static final RateLimiter.Requester REQUESTER = new RateLimiter.Requester("prefetch", null);
+
+    // One batch of prefetches for one subject of one tab
+    private static final class Batch {
+        final String subject;
+        Future<?> future;
+
+        Batch(String subject) {
+            this.subject = subject;
+        }
+    }
+
+    // A finished prefetch nobody has asked for yet
+    private static final class Prefetched {
+        final Object owner;
+        final long tokens;
+
+        Prefetched(Object owner, long tokens) {
+            this.owner = owner;
+            this.tokens = tokens;
+        }
+    }
+
+    private final GenerationService service;
+    private final PriorityScheduler scheduler;
+    private final boolean enabled;
+    private final long tokensPerHour;
+    private final int maxTypes;
+    private final ExecutorService executor;
+
+    private final Map<Object, Batch> batches = new HashMap<>();
+    // Keyed by content type and normalized subject, oldest first
+    private final LinkedHashMap<String, Prefetched> unused = new LinkedHashMap<>();
+    // Prefetches still running, and those the user has already asked for (served by SingleFlight)
+    private final Set<String> running = new HashSet<>();
+    private final Set<String> claimed = new HashSet<>();
+    // Content type -> next content type asked for the same subject -> count
+    private final Map<String, Map<String, Integer>> transitions = new HashMap<>();
+    private final Map<Object, String[]> lastRequest = new HashMap<>();
+    private long budgetWindowStart = System.nanoTime();
+    private long spentTokens;
+
+    public Prefetcher(GenerationService service, PriorityScheduler scheduler, boolean enabled, long tokensPerHour,
+                      int maxTypes) {
+        this.service = service;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.tokensPerHour = Math.max(0, tokensPerHour);
+        this.maxTypes = Math.max(1, maxTypes);
+        this.executor = enabled ? AppExecutors.newBoundedExecutor("prefetch", 1) : null;
+    }
+
+    /**
+     * Préchargement réglé par textgen.prefetch.enabled (false), textgen.prefetch.tokensPerHour
+     * et textgen.prefetch.maxTypes (types de contenu préchargés à chaque fois).
+     */
+    public static Prefetcher fromConfig(GenerationService service, PriorityScheduler scheduler) {
+        return new Prefetcher(service, scheduler, AppConfig.getBoolean("textgen.prefetch.enabled", false),
+                AppConfig.getLong("textgen.prefetch.tokensPerHour", 30_000),
+                AppConfig.getInt("textgen.prefetch.maxTypes", 2));
+    }
+
+    /**
+     * L'utilisateur lance une génération : compte un succès si elle avait été préchargée,
+     * et retient l'enchaînement des types de contenu pour les prochaines prédictions.
+     */
+    public synchronized void onUserGeneration(Object owner, String contentType, String subject) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(contentType, subject);
+        if (unused.remove(key) != null || running.contains(key) && claimed.add(key)) {
+            Metrics.increment(HITS);
+        }
+        String[] previous = lastRequest.put(owner, new String[]{contentType, Prompts.normalize(subject)});
+        if (previous != null && previous[1].equals(Prompts.normalize(subject)) && !previous[0].equals(contentType)) {
+            transitions.computeIfAbsent(previous[0], type -> new HashMap<>()).merge(contentType, 1, Integer::sum);
+        }
+        onSubjectChanged(owner, subject);
+    }
+
+    /**
+     * Une génération vient de se terminer : précharge les types de contenu qui la suivent d'habitude.
+     *
+     * @param promptFor premier prompt qu'enverrait l'onglet pour un type de contenu et un sujet
+     */
+    public synchronized void onGenerated(Object owner, String contentType, String subject,
+                                         BiFunction<String, String, String> promptFor) {
+        start(owner, subject, likelyAfter(contentType), promptFor);
+    }
+
+    /** Le sujet n'a pas bougé depuis un instant : précharge le type choisi, puis les suivants probables. */
+    public synchronized void onSubjectIdle(Object owner, String contentType, String subject,
+                                           BiFunction<String, String, String> promptFor) {
+        List<String> types = likelyAfter(contentType);
+        types.add(0, contentType);
+        start(owner, subject, types, promptFor);
+    }
+
+    /**
+     * Le sujet de l'onglet a changé (ou l'onglet est fermé si subject est null) : ses
+     * préchargements pour un autre sujet sont annulés, et ceux qui sont finis mais inutilisés
+     * sont comptés comme perdus.
+     */
+    public synchronized void onSubjectChanged(Object owner, String subject) {
+        if (!enabled) {
+            return;
+        }
+        if (subject == null) {
+            lastRequest.remove(owner);
+        }
+        Batch batch = batches.get(owner);
+        if (batch == null || subject != null && batch.subject.equals(Prompts.normalize(subject))) {
+            return;
+        }
+        batches.remove(owner);
+        if (batch.future.cancel(true)) {
+            Metrics.increment(CANCELLED);
+        }
+        String suffix = "\n" + batch.subject;
+        for (Iterator<Map.Entry<String, Prefetched>> it = unused.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Prefetched> entry = it.next();
+            if (entry.getValue().owner == owner && entry.getKey().endsWith(suffix)) {
+                Metrics.add(WASTED_TOKENS, entry.getValue().tokens);
+                it.remove();
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void start(Object owner, String subject, List<String> types,
+                       BiFunction<String, String, String> promptFor) {
+        if (!enabled || subject.trim().isEmpty()) {
+            return;
+        }
+        onSubjectChanged(owner, subject);
+        Batch previous = batches.get(owner);
+        if (previous != null && !previous.future.isDone()) {
+            return; // already prefetching this subject
+        }
+        // Prompts are built here, on the caller's thread, since they may read the tab's controls
+        List<String[]> work = new ArrayList<>();
+        for (String type : types.subList(0, Math.min(maxTypes, types.size()))) {
+            work.add(new String[]{type, promptFor.apply(type, subject)});
+        }
+        Batch batch = new Batch(Prompts.normalize(subject));
+        batch.future = executor.submit(() -> {
+            for (String[] item : work) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                prefetch(owner, item[0], subject, item[1]);
+            }
+        });
+        batches.put(owner, batch);
+    }
+
+    // Runs on the prefetch thread
+    private void prefetch(Object owner, String contentType, String subject, String prompt) {
+        GenerationService routed = service.forContentType(contentType);
+        if (routed.getCache().get(routed.getModel(), prompt) != null) {
+            return; // nothing to gain
+        }
+        // Lowest priority: never ahead of queued user work or of a quota wait
+        long estimate = routed.getLimiter().estimateTokens(prompt);
+        if (scheduler.getPendingCount() > 0 || routed.getLimiter().estimatedWaitMillis() > 0 || !reserve(estimate)) {
+            Metrics.increment(SKIPPED);
+            return;
+        }
+        Metrics.increment(STARTED);
+        String key = key(contentType, subject);
+        synchronized (this) {
+            running.add(key);
+        }
+        GenerationResult result = null;
+        try {
+            result = routed.generate(prompt, false, REQUESTER);
+        } catch (RuntimeException e) {
+            // Cancelled or failed: the reserved estimate stays spent, nothing is cached, the batch goes on
+            if (!(e instanceof GeminiException)) {
+                System.out.println("Warning: prefetch of " + contentType + " failed: " + e);
+            }
+            return;
+        } finally {
+            if (result == null) {
+                synchronized (this) {
+                    running.remove(key);
+                    claimed.remove(key);
+                }
+            }
+        }
+        long tokens = result.getPromptTokens() + result.getCandidateTokens();
+        if (tokens <= 0) {
+            tokens = estimate;
+        }
+        synchronized (this) {
+            running.remove(key);
+            spentTokens += tokens - estimate;
+            Metrics.increment(COMPLETED);
+            Metrics.add(TOKENS, tokens);
+            if (claimed.remove(key)) {
+                return; // the user joined it while it was running
+            }
+            unused.put(key, new Prefetched(owner, tokens));
+            if (unused.size() > MAX_TRACKED) {
+                Iterator<Prefetched> oldest = unused.values().iterator();
+                Metrics.add(WASTED_TOKENS, oldest.next().tokens);
+                oldest.remove();
+            }
+        }
+    }
+
+    private synchronized boolean reserve(long tokens) {
+        long now = System.nanoTime();
+        if (now - budgetWindowStart >= HOUR_NANOS) {
+            budgetWindowStart = now;
+            spentTokens = 0;
+        }
+        if (spentTokens + tokens > tokensPerHour) {
+            return false;
+        }
+        spentTokens += tokens;
+        return true;
+    }
+
+    // Other content types, the ones most often asked next first
+    private List<String> likelyAfter(String contentType) {
+        Map<String, Integer> counts = transitions.getOrDefault(contentType, Map.of());
+        List<String> types = new ArrayList<>();
+        for (String type : DEFAULT_ORDER) {
+            if (!type.equals(contentType)) {
+                types.add(type);
+            }
+        }
+        // Stable sort: the default order breaks ties
+        types.sort((a, b) -> counts.getOrDefault(b, 0) - counts.getOrDefault(a, 0));
+        return types;
+    }
+
+    private static String key(String contentType, String subject) {
+        return contentType + "\n" + Prompts.normalize(subject);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Exécuteur borné partagé par les onglets de génération : au plus maxThreads tâches tournent
+ * à la fois, les autres attendent. Un thread qui se libère prend la plus ancienne tâche dont
+ * la priorité est vraie à cet instant (celle de l'onglet affiché), sinon la plus ancienne.
+ * La priorité est évaluée au moment du choix : changer d'onglet fait passer ses tâches
+ * en attente devant les autres.
+ *
+ * Annuler le Future renvoyé retire une tâche en attente, ou interrompt celle qui tourne.
+ */
+public class PriorityScheduler {
+
+    public static final String PROMOTED = "scheduler.promoted";
+
+    private static final long KEEP_ALIVE_MILLIS = 30_000;
+
+    private static final class Task extends FutureTask<Void> {
+        final BooleanSupplier preferred;
+
+        Task(Runnable work, BooleanSupplier preferred) {
+            super(work, null);
+            this.preferred = preferred;
+        }
+    }
+
+    private final int maxThreads;
+    private final ThreadFactory threadFactory;
+    private final LinkedList<Task> pending = new LinkedList<>();
+    private final Set<Thread> workers = new HashSet<>();
+    private int idle;
+    private boolean shutdown;
+
+    public PriorityScheduler(String namePrefix, int maxThreads) {
+        this.maxThreads = Math.max(1, maxThreads);
+        this.threadFactory = AppExecutors.threadFactory(namePrefix);
+    }
+
+    /**
+     * Ordonnanceur des onglets, au plus textgen.tabs.maxConcurrent tâches à la fois.
+     */
+    public static PriorityScheduler fromConfig() {
+        return new PriorityScheduler("tab-worker", AppConfig.getInt("textgen.tabs.maxConcurrent", 4));
+    }
+
+    /**
+     * @param preferred appelé par un thread libre pour savoir si la tâche passe devant
+     *                  les autres ; doit être rapide et sûr depuis n'importe quel thread
+     */
+    public synchronized Future<?> submit(BooleanSupplier preferred, Runnable work) {
+        if (shutdown) {
+            throw new RejectedExecutionException("ordonnanceur arrêté");
+        }
+        Task task = new Task(work, preferred);
+        pending.addLast(task);
+        if (pending.size() > idle && workers.size() < maxThreads) {
+            Thread worker = threadFactory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        } else {
+            notify();
+        }
+        return task;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Annule les tâches en attente et interrompt celles qui tournent. */
+    public synchronized void shutdownNow() {
+        shutdown = true;
+        for (Task task : pending) {
+            task.cancel(false);
+        }
+        pending.clear();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        notifyAll();
+    }
+
+    private void work() {
+        while (true) {
+            Task task = take();
+            if (task == null) {
+                return;
+            }
+            task.run();
+            // A cancellation may interrupt the thread as the task ends: do not pass it on
+            Thread.interrupted();
+        }
+    }
+
+    // Null once the scheduler is shut down or the thread has been idle for the keep-alive time
+    private synchronized Task take() {
+        long idleSince = System.currentTimeMillis();
+        while (true) {
+            Task task = next();
+            if (task != null) {
+                return task;
+            }
+            long idleMillis = System.currentTimeMillis() - idleSince;
+            if (shutdown || idleMillis >= KEEP_ALIVE_MILLIS) {
+                workers.remove(Thread.currentThread());
+                return null;
+            }
+            idle++;
+            try {
+                wait(KEEP_ALIVE_MILLIS - idleMillis);
+            } catch (InterruptedException e) {
+                // Only shutdownNow interrupts an idle worker; the loop checks the flag
+            } finally {
+                idle--;
+            }
+        }
+    }
+
+    private Task next() {
+        Task oldest = null;
+        for (Iterator<Task> it = pending.iterator(); it.hasNext(); ) {
+            Task task = it.next();
+            if (task.isDone()) {
+                it.remove(); // cancelled while waiting
+                continue;
+            }
+            if (oldest == null) {
+                oldest = task;
+            }
+            if (task.preferred.getAsBoolean()) {
+                if (task != oldest) {
+                    Metrics.increment(PROMOTED);
+                }
+                it.remove();
+                return task;
+            }
+        }
+        if (oldest != null) {
+            pending.remove(oldest);
+        }
+        return oldest;
+    }
+}
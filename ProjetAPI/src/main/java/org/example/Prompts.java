@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Modèles de prompts envoyés à Gemini.
+ */
+final class Prompts {
+
+    /** Types de contenu proposés, dans l'ordre de la liste déroulante. */
+    static final List<String> CONTENT_TYPES = List.of("Article", "Contenu de Blog", "Rapport", "Résumé", "Étude de cas");
+
+    private Prompts() {
+    }
+
+    static String forContent(String contentType, String subject) {
+        return "Génère pour moi un " + contentType.toLowerCase() + " sur le sujet suivant : " + subject;
+    }
+
+    /**
+     * Plan d'un document long : une ligne numérotée par section, rien d'autre.
+     */
+    static String forOutline(String contentType, String subject, int maxSections) {
+        return "Propose le plan d'un " + contentType.toLowerCase() + " sur le sujet suivant : " + subject
+                + ". Réponds uniquement par une liste numérotée de " + Math.max(3, maxSections / 2) + " à " + maxSections
+                + " titres de sections, un par ligne, sans introduction ni commentaire.";
+    }
+
+    /**
+     * Une section d'un document long ; le plan complet est rappelé pour éviter les redites.
+     */
+    static String forSection(String contentType, String subject, List<String> outline, int index) {
+        StringBuilder plan = new StringBuilder();
+        for (int i = 0; i < outline.size(); i++) {
+            plan.append(i + 1).append(". ").append(outline.get(i)).append('\n');
+        }
+        return "Tu rédiges un " + contentType.toLowerCase() + " sur le sujet suivant : " + subject
+                + ". Voici son plan :\n" + plan
+                + "Rédige uniquement la section " + (index + 1) + " (« " + outline.get(index) + " »), en Markdown,"
+                + " en commençant par le titre \"## " + outline.get(index) + "\". Ne traite pas les autres sections.";
+    }
+
+    /**
+     * Nouvelle version d'une section d'un document existant : seuls le plan et la section
+     * actuelle sont envoyés, pas le reste du document.
+     *
+     * @param outline titres des sections du document, dans l'ordre
+     * @param index   position de la section dans outline
+     */
+    static String forSectionRewrite(String contentType, String subject, List<String> outline, int index,
+                                    String headingMarker, String currentSection) {
+        StringBuilder plan = new StringBuilder();
+        for (int i = 0; i < outline.size(); i++) {
+            plan.append(i + 1).append(". ").append(outline.get(i)).append('\n');
+        }
+        return "Tu révises un " + contentType.toLowerCase() + " sur le sujet suivant : " + subject
+                + ". Voici son plan :\n" + plan
+                + "Voici la version actuelle de la section " + (index + 1) + " (« " + outline.get(index) + " ») :\n"
+                + currentSection
+                + "\nRédige une nouvelle version, meilleure, de cette seule section, en Markdown, en commençant par"
+                + " le titre \"" + headingMarker + " " + outline.get(index) + "\". Ne traite pas les autres sections.";
+    }
+
+    /**
+     * Forme canonique d'un prompt pour le cache : espaces réduits, casse ignorée.
+     */
+    static String normalize(String prompt) {
+        StringBuilder normalized = new StringBuilder(prompt.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < prompt.length(); i++) {
+            char c = prompt.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(c);
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,409 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Limiteur de débit commun à toutes les générations du processus, devant les quotas Gemini
+ * par minute : un seau de requêtes et un seau de tokens, chacun rempli en continu et plein
+ * au plus d'une demi-minute de quota. Le coût en tokens d'un appel est estimé d'après le prompt
+ * et la moyenne des réponses précédentes, puis corrigé avec usageMetadata.
+ *
+ * Le débit s'adapte (AIMD) : une réponse 429 le divise par deux et vide le seau de requêtes,
+ * en respectant Retry-After ; chaque succès le remonte d'une requête par minute, jusqu'aux
+ * valeurs configurées. Les appels en excès attendent leur tour : chaque demandeur a sa file,
+ * et les files sont servies à tour de rôle pour qu'un batch ne bloque pas les autres clients.
+ * Pendant l'attente, le demandeur reçoit une estimation du temps restant.
+ */
+public class RateLimiter {
+
+    public static final String WAITS = "ratelimit.waits";
+    public static final String THROTTLED = "ratelimit.throttled";
+
+    private static final double MIN_FACTOR = 0.05;
+    // Tokens assumed for an answer before any usageMetadata has been seen
+    private static final double INITIAL_ANSWER_TOKENS = 2048;
+    private static final long NOTICE_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private static volatile RateLimiter shared;
+
+    /**
+     * Demandeur servi dans sa propre file. onWait reçoit l'attente estimée en millisecondes,
+     * environ une fois par seconde tant que l'appel attend, puis 0 quand il part ; il est
+     * appelé depuis le thread de génération.
+     */
+    public static final class Requester {
+        public static final Requester DEFAULT = new Requester("default", null);
+
+        private final String name;
+        private final LongConsumer onWait;
+
+        public Requester(String name, LongConsumer onWait) {
+            this.name = name;
+            this.onWait = onWait;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        void notifyWait(long millis) {
+            if (onWait != null) {
+                onWait.accept(millis);
+            }
+        }
+    }
+
+    /** Autorisation d'un appel, à solder avec la réponse ou l'échec. */
+    public final class Permit {
+        private final long grantedAt;
+        private final long chargedTokens;
+
+        private Permit(long grantedAt, long chargedTokens) {
+            this.grantedAt = grantedAt;
+            this.chargedTokens = chargedTokens;
+        }
+
+        /** Remplace le coût estimé par le nombre de tokens facturé (usageMetadata). */
+        public void complete(GeminiResponse response) {
+            onSuccess(this, response);
+        }
+
+        /** Rend les tokens estimés ; un 429 réduit en plus le débit autorisé. */
+        public void fail(RuntimeException e) {
+            onFailure(this, e);
+        }
+    }
+
+    private static final class Waiter {
+        final Requester requester;
+        final long tokens;
+        boolean granted;
+        long grantedAt;
+
+        Waiter(Requester requester, long tokens) {
+            this.requester = requester;
+            this.tokens = tokens;
+        }
+    }
+
+    private final long maxRequestsPerMinute;
+    private final long maxTokensPerMinute;
+
+    private double factor = 1;
+    private double requests;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long pausedUntil = refilledAt;
+    private long lastDecrease = refilledAt;
+    private volatile double answerTokens = INITIAL_ANSWER_TOKENS;
+
+    private final Map<String, ArrayDeque<Waiter>> queues = new HashMap<>();
+    // Requesters with waiting calls, in serving order
+    private final ArrayDeque<String> rotation = new ArrayDeque<>();
+
+    /**
+     * @param maxRequestsPerMinute 0 pour ne pas limiter les requêtes
+     * @param maxTokensPerMinute   0 pour ne pas limiter les tokens
+     */
+    public RateLimiter(long maxRequestsPerMinute, long maxTokensPerMinute) {
+        this.maxRequestsPerMinute = Math.max(0, maxRequestsPerMinute);
+        this.maxTokensPerMinute = Math.max(0, maxTokensPerMinute);
+        this.requests = requestCapacity();
+        this.tokens = tokenCapacity();
+    }
+
+    /**
+     * Limiteur configuré par textgen.rate.requestsPerMinute et textgen.rate.tokensPerMinute
+     * (par défaut le quota gratuit du modèle par défaut ; 0 désactive la limite correspondante).
+     */
+    public static RateLimiter fromConfig() {
+        return new RateLimiter(AppConfig.getLong("textgen.rate.requestsPerMinute", 15),
+                AppConfig.getLong("textgen.rate.tokensPerMinute", 1_000_000));
+    }
+
+    /** Instance partagée par tout le processus, créée à la première utilisation. */
+    public static RateLimiter shared() {
+        RateLimiter limiter = shared;
+        if (limiter == null) {
+            synchronized (RateLimiter.class) {
+                limiter = shared;
+                if (limiter == null) {
+                    limiter = fromConfig();
+                    shared = limiter;
+                }
+            }
+        }
+        return limiter;
+    }
+
+    /** Sans limite. */
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0, 0);
+    }
+
+    private boolean isUnlimited() {
+        return maxRequestsPerMinute == 0 && maxTokensPerMinute == 0;
+    }
+
+    /** Coût estimé d'un appel : environ 4 caractères par token, plus une réponse moyenne. */
+    public long estimateTokens(String prompt) {
+        return prompt.length() / 4 + Math.round(answerTokens);
+    }
+
+    /** Part du débit configuré actuellement autorisée, entre 0,05 et 1. */
+    public synchronized double getRateFactor() {
+        return factor;
+    }
+
+    /** Attente estimée pour un appel qui arriverait maintenant, en millisecondes. */
+    public synchronized long estimatedWaitMillis() {
+        if (isUnlimited()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        refill(now);
+        long queuedTokens = 0;
+        int queued = 0;
+        for (ArrayDeque<Waiter> queue : queues.values()) {
+            queued += queue.size();
+            for (Waiter waiter : queue) {
+                queuedTokens += waiter.tokens;
+            }
+        }
+        return waitNanos(now, queued + 1, queuedTokens + Math.round(answerTokens)) / 1_000_000;
+    }
+
+    /**
+     * Attend que l'appel puisse partir. Interrompre le thread abandonne l'attente
+     * ({@link GeminiException} "Requête Gemini interrompue"), de même que l'échéance
+     * ({@link GeminiTimeoutException}).
+     *
+     * @param estimatedTokens coût estimé, voir {@link #estimateTokens}
+     */
+    public Permit acquire(Requester requester, long estimatedTokens, Deadline deadline) {
+        if (isUnlimited()) {
+            return new Permit(System.nanoTime(), 0);
+        }
+        long start = System.nanoTime();
+        Waiter waiter = new Waiter(requester, estimatedTokens);
+        boolean waited = false;
+        long noticeAt = start;
+        try {
+            while (true) {
+                long estimate;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    if (!waited) {
+                        queues.computeIfAbsent(requester.getName(), name -> {
+                            rotation.addLast(name);
+                            return new ArrayDeque<>();
+                        }).addLast(waiter);
+                    }
+                    dispatch(now);
+                    if (waiter.granted) {
+                        break;
+                    }
+                    estimate = now >= noticeAt ? positionWaitNanos(waiter, now) / 1_000_000 : -1;
+                }
+                if (!waited) {
+                    waited = true;
+                    Metrics.increment(WAITS);
+                }
+                if (estimate >= 0) {
+                    noticeAt = System.nanoTime() + NOTICE_INTERVAL_NANOS;
+                    requester.notifyWait(Math.max(1, estimate));
+                }
+                synchronized (this) {
+                    if (!waiter.granted) {
+                        if (deadline.isExpired()) {
+                            abandon(waiter);
+                            throw deadline.expired(null);
+                        }
+                        // Whoever wakes up first hands out the refilled permits
+                        long sleep = Math.min(NOTICE_INTERVAL_NANOS, Math.max(1_000_000, headWaitNanos(System.nanoTime())));
+                        if (deadline.isBounded()) {
+                            // Unbounded, remainingMillis() is Long.MAX_VALUE and would overflow in nanoseconds
+                            sleep = Math.min(sleep, Math.max(1, deadline.remainingMillis()) * 1_000_000);
+                        }
+                        wait(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            abandon(waiter);
+            Thread.currentThread().interrupt();
+            Metrics.increment(Metrics.CANCELLED);
+            throw new GeminiException("Requête Gemini interrompue", e);
+        }
+        if (waited) {
+            requester.notifyWait(0);
+        }
+        Metrics.record(Metrics.Phase.RATE_WAIT, start);
+        return new Permit(waiter.grantedAt, waiter.tokens);
+    }
+
+    private synchronized void abandon(Waiter waiter) {
+        if (waiter.granted) {
+            requests += 1;
+            tokens += waiter.tokens;
+        } else {
+            ArrayDeque<Waiter> queue = queues.get(waiter.requester.getName());
+            if (queue != null && queue.remove(waiter) && queue.isEmpty()) {
+                queues.remove(waiter.requester.getName());
+                rotation.remove(waiter.requester.getName());
+            }
+        }
+        // The next waiter may fit now
+        notifyAll();
+    }
+
+    private synchronized void onSuccess(Permit permit, GeminiResponse response) {
+        if (isUnlimited()) {
+            return;
+        }
+        int billed = response.getTotalTokenCount();
+        if (billed > 0) {
+            // A negative balance is a debt paid back before the next call
+            tokens += permit.chargedTokens - billed;
+            answerTokens = answerTokens * 0.8 + response.getCandidatesTokenCount() * 0.2;
+        }
+        factor = Math.min(1, factor + 1.0 / Math.max(20, maxRequestsPerMinute));
+        notifyAll();
+    }
+
+    private synchronized void onFailure(Permit permit, RuntimeException e) {
+        if (isUnlimited()) {
+            return;
+        }
+        // Nothing was generated: the request counts, the tokens do not
+        tokens += permit.chargedTokens;
+        GeminiException error = e instanceof GeminiException ? (GeminiException) e : null;
+        if (error != null && error.getStatusCode() == 429) {
+            Metrics.increment(THROTTLED);
+            long now = System.nanoTime();
+            // Calls sent before the last decrease saw the old rate: one halving per burst of 429s
+            if (permit.grantedAt - lastDecrease >= 0) {
+                factor = Math.max(MIN_FACTOR, factor / 2);
+                lastDecrease = now;
+                requests = 0;
+                tokens = Math.min(tokens, tokenCapacity());
+                System.out.printf("Warning: Gemini quota reached, rate limited to %.0f%% of the configured quota%n",
+                        factor * 100);
+            }
+            if (error.getRetryAfterMillis() > 0) {
+                pausedUntil = Math.max(pausedUntil, now + error.getRetryAfterMillis() * 1_000_000);
+            }
+        }
+        notifyAll();
+    }
+
+    // Grants permits in turn across requesters, FIFO within each one, while the buckets allow
+    private void dispatch(long now) {
+        refill(now);
+        if (now - pausedUntil < 0) {
+            return;
+        }
+        boolean granted = false;
+        while (!rotation.isEmpty()) {
+            String name = rotation.peekFirst();
+            ArrayDeque<Waiter> queue = queues.get(name);
+            Waiter head = queue.peekFirst();
+            // The bucket may have shrunk below an estimate since the call was queued
+            long needed = Math.min(head.tokens, tokenCapacity());
+            if ((maxRequestsPerMinute > 0 && requests < 1) || (maxTokensPerMinute > 0 && tokens < needed)) {
+                break;
+            }
+            requests -= 1;
+            tokens -= head.tokens;
+            head.granted = true;
+            head.grantedAt = now;
+            granted = true;
+            queue.pollFirst();
+            rotation.pollFirst();
+            if (queue.isEmpty()) {
+                queues.remove(name);
+            } else {
+                rotation.addLast(name);
+            }
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    private void refill(long now) {
+        double minutes = (now - refilledAt) / (double) NANOS_PER_MINUTE;
+        refilledAt = now;
+        if (now - pausedUntil < 0) {
+            return;
+        }
+        requests = Math.min(requestCapacity(), requests + minutes * maxRequestsPerMinute * factor);
+        tokens = Math.min(tokenCapacity(), tokens + minutes * maxTokensPerMinute * factor);
+    }
+
+    private double requestCapacity() {
+        return Math.max(1, maxRequestsPerMinute * factor / 2);
+    }
+
+    private long tokenCapacity() {
+        return maxTokensPerMinute == 0 ? Long.MAX_VALUE : Math.max(1, (long) (maxTokensPerMinute * factor / 2));
+    }
+
+    // Time until the calls ahead of waiter, and waiter itself, fit in the buckets
+    private long positionWaitNanos(Waiter waiter, long now) {
+        // Replays the serving order: one call per requester per round
+        List<Iterator<Waiter>> turns = new ArrayList<>();
+        for (String name : rotation) {
+            turns.add(queues.get(name).iterator());
+        }
+        int ahead = 0;
+        long aheadTokens = 0;
+        boolean found = false;
+        while (!found && !turns.isEmpty()) {
+            for (Iterator<Iterator<Waiter>> it = turns.iterator(); it.hasNext(); ) {
+                Iterator<Waiter> turn = it.next();
+                if (!turn.hasNext()) {
+                    it.remove();
+                    continue;
+                }
+                Waiter next = turn.next();
+                if (next == waiter) {
+                    found = true;
+                    break;
+                }
+                ahead++;
+                aheadTokens += next.tokens;
+            }
+        }
+        return waitNanos(now, ahead + 1, aheadTokens + waiter.tokens);
+    }
+
+    private long headWaitNanos(long now) {
+        if (rotation.isEmpty()) {
+            return NOTICE_INTERVAL_NANOS;
+        }
+        return waitNanos(now, 1, Math.min(queues.get(rotation.peekFirst()).peekFirst().tokens, tokenCapacity()));
+    }
+
+    private long waitNanos(long now, double neededRequests, double neededTokens) {
+        long wait = Math.max(0, pausedUntil - now);
+        if (maxRequestsPerMinute > 0) {
+            wait = Math.max(wait, minutesToNanos((neededRequests - requests) / (maxRequestsPerMinute * factor)));
+        }
+        if (maxTokensPerMinute > 0) {
+            wait = Math.max(wait, minutesToNanos((neededTokens - tokens) / (maxTokensPerMinute * factor)));
+        }
+        return wait;
+    }
+
+    private static long minutesToNanos(double minutes) {
+        return minutes <= 0 ? 0 : (long) (minutes * NANOS_PER_MINUTE);
+    }
+}
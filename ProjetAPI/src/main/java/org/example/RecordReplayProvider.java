@@ -0,0 +1,323 @@
+package org.example;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Enregistrement et rejeu d'échanges avec un modèle.
+ *
+ * En enregistrement, chaque appel est transmis au fournisseur réel, puis l'échange est écrit
+ * dans un fichier JSON par prompt : texte, tokens et instant d'arrivée de chaque fragment.
+ * En rejeu, les réponses viennent de ces fichiers, sans réseau, avec les délais enregistrés
+ * (ORIGINAL), un profil synthétique (premier fragment après ttfbMs à ±25 %, puis
+ * charsPerSecond caractères par seconde) ou sans attente (NONE).
+ * Un prompt jamais enregistré reçoit un des échanges enregistrés, choisi d'après son empreinte :
+ * quelques enregistrements suffisent à rejouer une charge de prompts variés.
+ * Avec strict, il est refusé (GeminiException 404).
+ */
+public class RecordReplayProvider implements ModelProvider {
+
+    public enum LatencyProfile {
+        ORIGINAL, SYNTHETIC, NONE
+    }
+
+    private static final int FORMAT_VERSION = 1;
+    // Size of the pieces a synthetic stream is cut into
+    private static final int SYNTHETIC_CHUNK_CHARS = 200;
+
+    /** Un échange enregistré : la réponse et l'instant d'arrivée de chaque fragment. */
+    private static final class Recording {
+        final String prompt;
+        final GeminiResponse response;
+        final String[] chunks;
+        final long[] chunkMillis;
+
+        Recording(String prompt, GeminiResponse response, String[] chunks, long[] chunkMillis) {
+            this.prompt = prompt;
+            this.response = response;
+            this.chunks = chunks;
+            this.chunkMillis = chunkMillis;
+        }
+    }
+
+    private final ModelProvider delegate;
+    private final Path directory;
+    private final String model;
+    private final LatencyProfile profile;
+    private final long ttfbMillis;
+    private final long charsPerSecond;
+    private final boolean strict;
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+    // Fallback order for unknown prompts, sorted by file name so that replays are repeatable
+    private final List<Recording> ordered = new ArrayList<>();
+
+    private RecordReplayProvider(ModelProvider delegate, Path directory, String model, LatencyProfile profile,
+                                 long ttfbMillis, long charsPerSecond, boolean strict) {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.model = model;
+        this.profile = profile;
+        this.ttfbMillis = ttfbMillis;
+        this.charsPerSecond = Math.max(1, charsPerSecond);
+        this.strict = strict;
+    }
+
+    /**
+     * Transmet chaque appel à delegate et enregistre l'échange dans directory.
+     */
+    public static RecordReplayProvider recording(ModelProvider delegate, Path directory) {
+        return new RecordReplayProvider(delegate, directory, delegate.getModel(), LatencyProfile.NONE, 0, 1, false);
+    }
+
+    /**
+     * Rejoue les échanges enregistrés dans directory sous le nom de modèle model.
+     */
+    public static RecordReplayProvider replaying(Path directory, String model, LatencyProfile profile,
+                                                 long ttfbMillis, long charsPerSecond, boolean strict) {
+        RecordReplayProvider provider = new RecordReplayProvider(null, directory, model, profile,
+                ttfbMillis, charsPerSecond, strict);
+        provider.load();
+        return provider;
+    }
+
+    /**
+     * Rejeu configuré par textgen.replay.dir, textgen.model, textgen.replay.latency
+     * (original, synthetic ou none), textgen.replay.ttfbMs, textgen.replay.charsPerSecond
+     * et textgen.replay.strict.
+     */
+    public static RecordReplayProvider fromConfig() {
+        return replaying(configuredDirectory(), AppConfig.get("textgen.model", GeminiClient.DEFAULT_MODEL),
+                LatencyProfile.valueOf(AppConfig.get("textgen.replay.latency", "original").toUpperCase(Locale.ROOT)),
+                AppConfig.getLong("textgen.replay.ttfbMs", 800),
+                AppConfig.getLong("textgen.replay.charsPerSecond", 2000),
+                AppConfig.getBoolean("textgen.replay.strict", false));
+    }
+
+    static Path configuredDirectory() {
+        String defaultDir = Paths.get(System.getProperty("user.home"), ".javatextgen", "recordings").toString();
+        return Paths.get(AppConfig.get("textgen.replay.dir", defaultDir));
+    }
+
+    public int size() {
+        return recordings.size();
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    // When recording, pinned content types keep their model; a replay answers every content type itself
+    @Override
+    public ModelProvider forContentType(String contentType) {
+        ModelProvider routed = delegate == null ? null : delegate.forContentType(contentType);
+        return routed == null || routed == delegate ? this : recording(routed, directory);
+    }
+
+    @Override
+    public GeminiResponse generate(String prompt, Deadline deadline) {
+        if (delegate != null) {
+            long start = System.nanoTime();
+            GeminiResponse response = delegate.generate(prompt, deadline);
+            long totalMillis = (System.nanoTime() - start) / 1_000_000;
+            save(new Recording(prompt, response, new String[]{response.getText()}, new long[]{totalMillis}));
+            return response;
+        }
+        return replay(prompt, deadline, null);
+    }
+
+    @Override
+    public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+        if (delegate != null) {
+            long start = System.nanoTime();
+            List<String> chunks = new ArrayList<>();
+            List<Long> times = new ArrayList<>();
+            GeminiResponse response = delegate.streamGenerate(prompt, deadline, chunk -> {
+                chunks.add(chunk);
+                times.add((System.nanoTime() - start) / 1_000_000);
+                onText.accept(chunk);
+            });
+            save(new Recording(prompt, response, chunks.toArray(new String[0]),
+                    times.stream().mapToLong(Long::longValue).toArray()));
+            return response;
+        }
+        return replay(prompt, deadline, onText);
+    }
+
+    // onText is null for a blocking call
+    private GeminiResponse replay(String prompt, Deadline deadline, Consumer<String> onText) {
+        long start = System.nanoTime();
+        Metrics.increment(Metrics.REQUESTS);
+        Recording recording = find(prompt);
+
+        String[] chunks;
+        long[] chunkMillis;
+        if (profile == LatencyProfile.SYNTHETIC) {
+            String text = recording.response.getText();
+            long ttfb = Math.round(ttfbMillis * ThreadLocalRandom.current().nextDouble(0.75, 1.25));
+            int count = Math.max(1, (text.length() + SYNTHETIC_CHUNK_CHARS - 1) / SYNTHETIC_CHUNK_CHARS);
+            chunks = new String[count];
+            chunkMillis = new long[count];
+            for (int i = 0; i < count; i++) {
+                int end = Math.min(text.length(), (i + 1) * SYNTHETIC_CHUNK_CHARS);
+                chunks[i] = text.substring(Math.min(text.length(), i * SYNTHETIC_CHUNK_CHARS), end);
+                chunkMillis[i] = ttfb + end * 1000L / charsPerSecond;
+            }
+        } else {
+            chunks = recording.chunks;
+            chunkMillis = recording.chunkMillis;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < chunks.length; i++) {
+            // A blocking call only waits for the last chunk
+            if (onText != null || i == chunks.length - 1) {
+                pauseUntil(start, profile == LatencyProfile.NONE ? 0 : chunkMillis[i], deadline);
+            }
+            if (i == 0) {
+                Metrics.record(Metrics.Phase.TTFB, start);
+                if (onText != null) {
+                    Metrics.record(Metrics.Phase.FIRST_TEXT, start);
+                }
+            }
+            text.append(chunks[i]);
+            if (onText != null) {
+                onText.accept(chunks[i]);
+            }
+        }
+        Metrics.record(Metrics.Phase.TOTAL, start);
+        GeminiResponse original = recording.response;
+        GeminiResponse response = new GeminiResponse(onText == null ? text.toString().trim() : text.toString(),
+                original.getFinishReason(), original.getPromptTokenCount(), original.getCandidatesTokenCount(),
+                original.getTotalTokenCount());
+        Metrics.recordTokens(response);
+        return response;
+    }
+
+    private Recording find(String prompt) {
+        Recording recording = recordings.get(ResponseCache.key(model, prompt));
+        if (recording != null) {
+            return recording;
+        }
+        if (strict || ordered.isEmpty()) {
+            Metrics.recordError(404);
+            throw new GeminiException(404, "Aucun échange enregistré pour ce prompt dans " + directory);
+        }
+        return ordered.get(Math.floorMod(Prompts.normalize(prompt).hashCode(), ordered.size()));
+    }
+
+    // Past the deadline, waits until it expires and fails as a stalled call would
+    private static void pauseUntil(long startNanos, long offsetMillis, Deadline deadline) {
+        long remaining = startNanos + offsetMillis * 1_000_000 - System.nanoTime();
+        if (remaining <= 0) {
+            return;
+        }
+        boolean expires = remaining / 1_000_000 >= deadline.remainingMillis();
+        if (expires) {
+            remaining = deadline.remainingMillis() * 1_000_000;
+        }
+        try {
+            Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            if (expires) {
+                throw deadline.expired(null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Metrics.increment(Metrics.CANCELLED);
+            throw new GeminiException("Requête Gemini interrompue", e);
+        }
+    }
+
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            System.out.println("Warning: no recordings to replay in " + directory);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.out.println("Warning: could not list recordings: " + e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            try {
+                Recording recording = decode(new JSONObject(Files.readString(file, StandardCharsets.UTF_8)));
+                recordings.put(ResponseCache.key(model, recording.prompt), recording);
+                ordered.add(recording);
+            } catch (IOException | JSONException e) {
+                System.out.println("Warning: skipping recording " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void save(Recording recording) {
+        String key = ResponseCache.key(model, recording.prompt);
+        recordings.put(key, recording);
+        try {
+            Files.createDirectories(directory);
+            // Write to a temp file and move it so that a replay never reads a partial recording
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temp, encode(recording).toString(2), StandardCharsets.UTF_8);
+            Files.move(temp, directory.resolve(key + ".json"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Warning: could not save recording: " + e.getMessage());
+        }
+    }
+
+    private JSONObject encode(Recording recording) {
+        JSONArray chunks = new JSONArray();
+        for (int i = 0; i < recording.chunks.length; i++) {
+            chunks.put(new JSONObject().put("atMs", recording.chunkMillis[i]).put("text", recording.chunks[i]));
+        }
+        GeminiResponse response = recording.response;
+        return new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("model", model)
+                .put("prompt", recording.prompt)
+                .put("finishReason", response.getFinishReason() == null ? JSONObject.NULL : response.getFinishReason())
+                .put("promptTokens", response.getPromptTokenCount())
+                .put("candidateTokens", response.getCandidatesTokenCount())
+                .put("totalTokens", response.getTotalTokenCount())
+                .put("chunks", chunks);
+    }
+
+    private static Recording decode(JSONObject json) throws IOException {
+        if (json.optInt("version") != FORMAT_VERSION) {
+            throw new IOException("version de format inconnue");
+        }
+        JSONArray chunkArray = json.getJSONArray("chunks");
+        String[] chunks = new String[chunkArray.length()];
+        long[] chunkMillis = new long[chunkArray.length()];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < chunks.length; i++) {
+            JSONObject chunk = chunkArray.getJSONObject(i);
+            chunks[i] = chunk.getString("text");
+            chunkMillis[i] = chunk.getLong("atMs");
+            text.append(chunks[i]);
+        }
+        GeminiResponse response = new GeminiResponse(text.toString(), json.optString("finishReason", null),
+                json.optInt("promptTokens"), json.optInt("candidateTokens"), json.optInt("totalTokens"));
+        return new Recording(json.getString("prompt"), response, chunks, chunkMillis);
+    }
+}
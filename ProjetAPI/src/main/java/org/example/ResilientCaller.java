@@ -0,0 +1,208 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Couche de résilience autour des appels Gemini : disjoncteur, nouveaux essais avec
+ * attente exponentielle, et requêtes « couvertes » (hedging) en option.
+ *
+ * Avec le hedging, si une requête dépasse le percentile textgen.hedge.percentile des durées
+ * déjà observées ({@link Metrics.Phase#TOTAL}), une seconde requête identique est lancée et la
+ * première réponse reçue l'emporte ; l'autre est annulée. Cela coupe la traîne de latence au
+ * prix de quelques appels en plus, d'où la désactivation par défaut (percentile à 0).
+ *
+ * Avec une échéance ({@link Deadline}), aucune tentative ne part et aucune attente entre deux
+ * essais ne commence si elle ne peut pas se terminer avant l'échéance.
+ */
+public class ResilientCaller {
+
+    // Percentiles need enough samples to mean something
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker breaker;
+    private final double hedgePercentile;
+    private final long hedgeMinDelayMillis;
+    private volatile ExecutorService hedgeExecutor;
+
+    public ResilientCaller(RetryPolicy retryPolicy, CircuitBreaker breaker, double hedgePercentile, long hedgeMinDelayMillis) {
+        this.retryPolicy = retryPolicy;
+        this.breaker = breaker;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    }
+
+    /**
+     * Configuration par défaut : voir {@link RetryPolicy#fromConfig()}, {@link CircuitBreaker#fromConfig()},
+     * textgen.hedge.percentile (0 = désactivé) et textgen.hedge.minDelayMs.
+     */
+    public static ResilientCaller fromConfig() {
+        return new ResilientCaller(RetryPolicy.fromConfig(), CircuitBreaker.fromConfig(),
+                Double.parseDouble(AppConfig.get("textgen.hedge.percentile", "0")),
+                AppConfig.getLong("textgen.hedge.minDelayMs", 1000));
+    }
+
+    /** Sans nouvel essai, disjoncteur ni hedging. */
+    public static ResilientCaller none() {
+        return new ResilientCaller(new RetryPolicy(1, 0, 0), new CircuitBreaker(Integer.MAX_VALUE, 0), 0, 0);
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    /** Appel idempotent : nouveaux essais et hedging autorisés. */
+    public <T> T call(Supplier<T> attempt) {
+        return call(Deadline.none(), attempt);
+    }
+
+    /** Appel idempotent borné par deadline, que chaque tentative doit aussi respecter. */
+    public <T> T call(Deadline deadline, Supplier<T> attempt) {
+        return execute(deadline, attempt, () -> true, true);
+    }
+
+    /**
+     * Appel en flux : un nouvel essai n'a lieu que si canRetry est encore vrai,
+     * c'est-à-dire tant qu'aucun fragment n'a été transmis. Pas de hedging.
+     */
+    public <T> T callStreaming(Deadline deadline, Supplier<T> attempt, BooleanSupplier canRetry) {
+        return execute(deadline, attempt, canRetry, false);
+    }
+
+    private <T> T execute(Deadline deadline, Supplier<T> attempt, BooleanSupplier canRetry, boolean hedge) {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            deadline.check();
+            breaker.acquire();
+            try {
+                T result = hedge ? hedged(attempt) : attempt.get();
+                breaker.onSuccess();
+                return result;
+            } catch (GeminiException e) {
+                // The caller's own budget running out says nothing about the service
+                if (Thread.currentThread().isInterrupted() || GeminiTimeoutException.isDeadline(e)) {
+                    breaker.onAbandon();
+                    throw e;
+                }
+                // 429 means quota, not an outage: it is retried but does not trip the breaker
+                if (e.getStatusCode() == 0 || e.getStatusCode() >= 500) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+                if (attemptNumber >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(e) || !canRetry.getAsBoolean()) {
+                    throw e;
+                }
+                long delay = retryPolicy.delayMillis(attemptNumber, e);
+                if (delay < 0 || delay >= deadline.remainingMillis()) {
+                    throw e;
+                }
+                Metrics.increment("retry.attempts");
+                sleep(delay);
+            } catch (RuntimeException e) {
+                breaker.onAbandon();
+                throw e;
+            }
+        }
+    }
+
+    private <T> T hedged(Supplier<T> attempt) {
+        long delay = hedgeDelayMillis();
+        if (delay <= 0) {
+            return attempt.get();
+        }
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(hedgeExecutor());
+        List<Future<T>> attempts = new ArrayList<>(2);
+        attempts.add(completion.submit(attempt::get));
+        try {
+            Future<T> done = completion.poll(delay, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                Metrics.increment("hedge.started");
+                attempts.add(completion.submit(attempt::get));
+                done = completion.take();
+            }
+            GeminiException failure;
+            try {
+                T result = done.get();
+                if (done != attempts.get(0)) {
+                    Metrics.increment("hedge.won");
+                }
+                return result;
+            } catch (ExecutionException e) {
+                failure = unwrap(e);
+            }
+            if (attempts.size() == 1) {
+                throw failure;
+            }
+            // One attempt failed, the other may still succeed
+            try {
+                return completion.take().get();
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+        } catch (InterruptedException | CancellationException e) {
+            Thread.currentThread().interrupt();
+            throw new GeminiException("Requête Gemini interrompue", e);
+        } finally {
+            // Interrupting the loser closes its response stream
+            for (Future<T> future : attempts) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private long hedgeDelayMillis() {
+        if (hedgePercentile <= 0) {
+            return 0;
+        }
+        LatencyHistogram.Snapshot latencies = Metrics.snapshot(Metrics.Phase.TOTAL);
+        if (latencies.getCount() < HEDGE_MIN_SAMPLES) {
+            return 0;
+        }
+        return Math.max(hedgeMinDelayMillis, (long) latencies.percentileMillis(hedgePercentile));
+    }
+
+    private ExecutorService hedgeExecutor() {
+        ExecutorService executor = hedgeExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = hedgeExecutor;
+                if (executor == null) {
+                    // Not the shared bounded pool: the caller usually runs on it and waits for these tasks
+                    executor = Executors.newCachedThreadPool(AppExecutors.threadFactory("gemini-hedge"));
+                    hedgeExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static GeminiException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof GeminiException) {
+            return (GeminiException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new GeminiException("Erreur lors de l'appel à l'API Gemini : " + cause.getMessage(), cause);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeminiException("Requête Gemini interrompue", e);
+        }
+    }
+}
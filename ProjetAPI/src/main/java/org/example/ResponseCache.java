@@ -0,0 +1,281 @@
+package org.example;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache des réponses Gemini à deux niveaux.
+ * Le premier niveau est une LRU bornée en mémoire ; le second stocke chaque réponse
+ * compressée (gzip) dans un fichier, ce qui lui permet de survivre au redémarrage.
+ * Les deux niveaux partagent la même durée de vie (TTL).
+ */
+public class ResponseCache {
+
+    // 2: only complete answers are stored, older entries may hold truncated or empty text
+    private static final int FORMAT_VERSION = 2;
+    private static final String ENTRY_SUFFIX = ".gz";
+    // Temp files older than this were left by a crashed writer, not by one still running
+    private static final long STALE_TEMP_MILLIS = 3_600_000;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private final Map<String, Entry> memory;
+
+    private static final class Entry {
+        final String text;
+        final long createdAt;
+
+        Entry(String text, long createdAt) {
+            this.text = text;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * @param directory dossier du niveau disque, ou null pour un cache uniquement en mémoire
+     */
+    public ResponseCache(int maxEntries, long ttlMillis, Path directory, long maxDiskBytes) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : files.collect(Collectors.toList())) {
+                        if (isEntry(file)) {
+                            diskBytes.addAndGet(sizeOf(file));
+                        } else if (file.getFileName().toString().endsWith(".tmp") && lastModified(file) < staleBefore) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Warning: disk cache disabled: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cache configuré par textgen.cache.maxEntries, textgen.cache.ttlMinutes,
+     * textgen.cache.dir et textgen.cache.maxDiskMb.
+     */
+    public static ResponseCache fromConfig() {
+        String defaultDir = Paths.get(System.getProperty("user.home"), ".javatextgen", "cache").toString();
+        return new ResponseCache(
+                AppConfig.getInt("textgen.cache.maxEntries", 200),
+                AppConfig.getLong("textgen.cache.ttlMinutes", 24 * 60) * 60_000L,
+                Paths.get(AppConfig.get("textgen.cache.dir", defaultDir)),
+                AppConfig.getLong("textgen.cache.maxDiskMb", 50) * 1024 * 1024);
+    }
+
+    public static String key(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((model + "\n" + Prompts.normalize(prompt)).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return la réponse en cache, ou null si elle est absente ou expirée
+     */
+    public GenerationResult get(String model, String prompt) {
+        String key = key(model, prompt);
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (now - entry.createdAt <= ttlMillis) {
+                    return new GenerationResult(entry.text, CacheOutcome.MEMORY_HIT, "STOP", 0, 0);
+                }
+                memory.remove(key);
+            }
+        }
+
+        Entry entry = readFromDisk(key, now);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        return new GenerationResult(entry.text, CacheOutcome.DISK_HIT, "STOP", 0, 0);
+    }
+
+    public void put(String model, String prompt, String text) {
+        String key = key(model, prompt);
+        Entry entry = new Entry(text, System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(ResponseCache::isEntry).collect(Collectors.toList())) {
+                deleteFile(file);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: could not clear disk cache: " + e.getMessage());
+        }
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + ENTRY_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                // Written by an older version: never readable again, so free its share of the quota
+                deleteFile(file);
+                return null;
+            }
+            long createdAt = in.readLong();
+            if (now - createdAt > ttlMillis) {
+                deleteFile(file);
+                return null;
+            }
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new Entry(new String(bytes, StandardCharsets.UTF_8), createdAt);
+        } catch (IOException e) {
+            // Corrupted or truncated file: drop it and treat as a miss
+            deleteFile(file);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        Path file = directory.resolve(key + ENTRY_SUFFIX);
+        Path temp = null;
+        try {
+            // Write to a temp file and move it so that readers never see a partial entry
+            temp = Files.createTempFile(directory, key, ".tmp");
+            try (OutputStream raw = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new GZIPOutputStream(raw))) {
+                byte[] bytes = entry.text.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(entry.createdAt);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            long previous = Files.exists(file) ? sizeOf(file) : 0;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            if (diskBytes.addAndGet(sizeOf(file) - previous) > maxDiskBytes) {
+                evictOldestFiles();
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: could not write cache entry: " + e.getMessage());
+        } finally {
+            // Not counted in diskBytes: a temp file left behind would hold disk space for good
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    System.out.println("Warning: could not delete cache temp file: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private synchronized void evictOldestFiles() {
+        // Entries only: another thread's temp file must still be there when it moves it into place
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> oldestFirst = files
+                    .filter(ResponseCache::isEntry)
+                    .sorted(Comparator.comparingLong(ResponseCache::lastModified))
+                    .collect(Collectors.toList());
+            for (Path file : oldestFirst) {
+                if (diskBytes.get() <= maxDiskBytes) {
+                    break;
+                }
+                deleteFile(file);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: could not trim disk cache: " + e.getMessage());
+        }
+    }
+
+    private void deleteFile(Path file) {
+        long size = sizeOf(file);
+        try {
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: could not delete cache entry: " + e.getMessage());
+        }
+    }
+
+    private static boolean isEntry(Path file) {
+        return file.getFileName().toString().endsWith(ENTRY_SUFFIX);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.example;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zone de résultat virtualisée.
+ * Les blocs du document sont les éléments d'une ListView : seuls les blocs visibles ont des
+ * nœuds, et les cellules sont recyclées au défilement. Un rapport de plusieurs milliers de
+ * lignes coûte donc autant à afficher qu'un écran de texte.
+ */
+public class ResultView {
+
+    private final ObservableList<MarkdownDocument.Block> blocks = FXCollections.observableArrayList();
+    private final ListView<MarkdownDocument.Block> listView = new ListView<>(blocks);
+    private final Label messageLabel = new Label();
+    private final VBox root = new VBox(listView, messageLabel);
+
+    public ResultView() {
+        listView.setCellFactory(view -> new BlockCell());
+        listView.getStyleClass().add("result-list");
+        listView.setPrefHeight(350);
+        listView.setFocusTraversable(false);
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        messageLabel.setWrapText(true);
+        messageLabel.setPadding(new Insets(5, 15, 0, 15));
+        messageLabel.setManaged(false);
+        messageLabel.setVisible(false);
+    }
+
+    public Node getNode() {
+        return root;
+    }
+
+    public boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    public void clear() {
+        blocks.clear();
+        hideMessage();
+    }
+
+    public void setDocument(MarkdownDocument document) {
+        hideMessage();
+        blocks.setAll(document.getBlocks());
+        listView.scrollTo(0);
+    }
+
+    public void append(List<MarkdownDocument.Block> newBlocks) {
+        blocks.addAll(newBlocks);
+    }
+
+    /**
+     * Remplace les blocs [start, end) : seules les cellules de ces blocs sont redessinées,
+     * le reste du document garde ses nœuds et la position de défilement.
+     */
+    public void replace(int start, int end, List<MarkdownDocument.Block> replacement) {
+        hideMessage();
+        int common = Math.min(end - start, replacement.size());
+        for (int i = 0; i < common; i++) {
+            if (blocks.get(start + i) != replacement.get(i)) {
+                blocks.set(start + i, replacement.get(i));
+            }
+        }
+        if (replacement.size() > common) {
+            blocks.addAll(start + common, replacement.subList(common, replacement.size()));
+        } else if (end - start > common) {
+            blocks.remove(start + common, end);
+        }
+        listView.getSelectionModel().select(start);
+    }
+
+    /** Les blocs affichés, sous forme de document. */
+    public MarkdownDocument getDocument() {
+        return new MarkdownDocument(blocks);
+    }
+
+    /** Indice du bloc sélectionné par l'utilisateur, -1 sans sélection. */
+    public ReadOnlyIntegerProperty selectedIndexProperty() {
+        return listView.getSelectionModel().selectedIndexProperty();
+    }
+
+    /** Message affiché sous le résultat (erreur, annulation). */
+    public void showMessage(String text, Color color) {
+        messageLabel.setText(text);
+        messageLabel.setTextFill(color);
+        messageLabel.setManaged(true);
+        messageLabel.setVisible(true);
+    }
+
+    private void hideMessage() {
+        messageLabel.setText("");
+        messageLabel.setManaged(false);
+        messageLabel.setVisible(false);
+    }
+
+    /**
+     * Cellule recyclée : le même TextFlow est réutilisé pour chaque bloc qu'elle affiche.
+     */
+    private final class BlockCell extends ListCell<MarkdownDocument.Block> {
+
+        private final TextFlow flow = new TextFlow();
+
+        BlockCell() {
+            flow.setLineSpacing(8);
+            // Wrap to the visible width (minus padding and the vertical scrollbar)
+            flow.maxWidthProperty().bind(listView.widthProperty().subtract(40));
+            flow.setMinHeight(TextStyles.BODY_SIZE);
+            setPrefWidth(0);
+            getStyleClass().add("result-cell");
+        }
+
+        @Override
+        protected void updateItem(MarkdownDocument.Block block, boolean empty) {
+            super.updateItem(block, empty);
+            setText(null);
+            if (empty || block == null) {
+                flow.getChildren().clear();
+                setGraphic(null);
+                return;
+            }
+            flow.getChildren().setAll(render(block));
+            setGraphic(flow);
+        }
+    }
+
+    static List<Text> render(MarkdownDocument.Block block) {
+        List<Text> texts = new ArrayList<>(block.getSpans().size() + 1);
+        switch (block.getType()) {
+            case HEADING:
+                // Titres : h1 et h2 en bleu, h3 et au-delà en vert
+                Color color = TextStyles.headingColor(block.getLevel());
+                for (MarkdownDocument.Span span : block.getSpans()) {
+                    Text title = new Text(span.getText());
+                    title.setFont(TextStyles.heading(block.getLevel(), span.isItalic()));
+                    title.setFill(color);
+                    texts.add(title);
+                }
+                return texts;
+
+            case BULLET:
+                // Liste à puces
+                Text bullet = new Text("• ");
+                bullet.setFont(TextStyles.body(false, false));
+                texts.add(bullet);
+                break;
+
+            case BLANK:
+                // Ligne vide pour l'espacement
+                return texts;
+
+            default:
+                break;
+        }
+        // Liste numérotée et texte normal avec formatage
+        for (MarkdownDocument.Span span : block.getSpans()) {
+            Text text = new Text(span.getText());
+            text.setFont(TextStyles.body(span.isBold(), span.isItalic()));
+            texts.add(text);
+        }
+        return texts;
+    }
+}
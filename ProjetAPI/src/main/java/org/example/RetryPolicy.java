@@ -0,0 +1,60 @@
+package org.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Nouvel essai des appels Gemini en échec transitoire (429, 5xx, erreur réseau),
+ * avec un délai exponentiel tiré au hasard ("full jitter") pour que les clients
+ * ne réessaient pas tous au même instant. Un Retry-After du serveur est respecté.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Politique configurée par textgen.retry.maxAttempts, textgen.retry.baseDelayMs
+     * et textgen.retry.maxDelayMs.
+     */
+    public static RetryPolicy fromConfig() {
+        return new RetryPolicy(AppConfig.getInt("textgen.retry.maxAttempts", 3),
+                AppConfig.getLong("textgen.retry.baseDelayMs", 500),
+                AppConfig.getLong("textgen.retry.maxDelayMs", 30_000));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isRetryable(GeminiException e) {
+        if (GeminiTimeoutException.isDeadline(e)) {
+            return false;
+        }
+        int status = e.getStatusCode();
+        // Status 0 is a network error, unless the caller interrupted the request itself
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504
+                || (status == 0 && !(e.getCause() instanceof InterruptedException));
+    }
+
+    /**
+     * Attente avant l'essai suivant ; attempt vaut 1 après le premier échec.
+     * Renvoie -1 si le serveur demande d'attendre plus que maxDelayMillis : il vaut mieux
+     * alors échouer tout de suite.
+     */
+    public long delayMillis(int attempt, GeminiException e) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        long retryAfter = e.getRetryAfterMillis();
+        if (retryAfter > maxDelayMillis) {
+            return -1;
+        }
+        return Math.max(jittered, retryAfter);
+    }
+}
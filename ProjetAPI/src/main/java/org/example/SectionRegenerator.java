@@ -0,0 +1,80 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Régénère une seule section d'un document déjà affiché. Gemini reçoit le plan du document et
+ * la section actuelle, et ne renvoie que la nouvelle section : l'appel coûte une fraction des
+ * tokens et du temps d'une génération complète, et le reste du document ne change pas.
+ */
+public class SectionRegenerator {
+
+    public static final String REGENERATED = "section.regenerated";
+    public static final String REJECTED = "section.rejected";
+
+    private final GenerationService service;
+
+    public SectionRegenerator(GenerationService service) {
+        this.service = service;
+    }
+
+    /**
+     * Appel bloquant ; renvoie les blocs qui remplacent [headingIndex, document.sectionEnd(headingIndex)).
+     * Le titre d'origine est conservé. Le cache est ignoré : une régénération veut un nouveau texte.
+     *
+     * @param headingIndex indice d'un bloc pour lequel {@link MarkdownDocument#isSection} est vrai
+     * @throws GeminiException si la réponse est coupée, bloquée ou vide : la section doit rester telle quelle
+     */
+    public List<MarkdownDocument.Block> regenerate(MarkdownDocument document, int headingIndex, String contentType,
+                                                   String subject, RateLimiter.Requester requester) {
+        List<MarkdownDocument.Block> blocks = document.getBlocks();
+        MarkdownDocument.Block heading = blocks.get(headingIndex);
+        int end = document.sectionEnd(headingIndex);
+
+        // Headings of the same depth or shallower make up the outline given as context
+        List<String> outline = new ArrayList<>();
+        int position = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            MarkdownDocument.Block block = blocks.get(i);
+            if (block.getType() == MarkdownDocument.BlockType.HEADING && block.getLevel() <= heading.getLevel()
+                    && (i > 0 || block.getLevel() == heading.getLevel())) {
+                if (i == headingIndex) {
+                    position = outline.size();
+                }
+                outline.add(block.getText().trim());
+            }
+        }
+
+        String prompt = Prompts.forSectionRewrite(contentType, subject, outline, position,
+                "#".repeat(heading.getLevel()), MarkdownWriter.toMarkdown(blocks.subList(headingIndex, end)));
+        GenerationResult result = service.generate(prompt, true, requester);
+        if (!result.isComplete()) {
+            Metrics.increment(REJECTED);
+            throw new GeminiException(0, "Réponse Gemini incomplète (" + result.getFinishReason() + ")");
+        }
+
+        List<MarkdownDocument.Block> replacement = new ArrayList<>(MarkdownParser.parse(result.getText()).getBlocks());
+        // Keep the original heading, whatever level or wording the answer uses
+        while (!replacement.isEmpty() && replacement.get(0).getType() == MarkdownDocument.BlockType.BLANK) {
+            replacement.remove(0);
+        }
+        if (!replacement.isEmpty() && replacement.get(0).getType() == MarkdownDocument.BlockType.HEADING) {
+            replacement.remove(0);
+        }
+        // A lone heading would wipe the section's text
+        if (replacement.stream().allMatch(block -> block.getType() == MarkdownDocument.BlockType.BLANK)) {
+            Metrics.increment(REJECTED);
+            throw new GeminiException(0, "Section vide renvoyée par Gemini");
+        }
+        Metrics.increment(REGENERATED);
+        replacement.add(0, heading);
+        // Keep the spacing before the next heading
+        MarkdownDocument.Block last = blocks.get(end - 1);
+        if (last.getType() == MarkdownDocument.BlockType.BLANK
+                && replacement.get(replacement.size() - 1).getType() != MarkdownDocument.BlockType.BLANK) {
+            replacement.add(last);
+        }
+        return replacement;
+    }
+}
@@ -0,0 +1,156 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Regroupement des générations identiques en cours (« single flight ») : tant qu'un appel
+ * pour une clé est en vol, les demandes suivantes s'y abonnent au lieu d'en lancer un autre.
+ * Un abonné en flux arrivé en cours de route reçoit d'abord le texte déjà produit, puis la suite.
+ *
+ * L'appel tourne sur son propre thread : l'annulation d'un abonné ne touche pas les autres,
+ * et l'appel n'est interrompu que lorsque plus personne n'attend son résultat.
+ */
+public class SingleFlight {
+
+    public static final String LEADERS = "singleflight.calls";
+    public static final String SAVED = "singleflight.saved";
+
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(AppExecutors.threadFactory("gemini-flight"));
+
+    /** Réponse obtenue, et si elle vient d'un appel lancé par une autre demande. */
+    public static final class Result {
+        private final GeminiResponse response;
+        private final boolean shared;
+
+        Result(GeminiResponse response, boolean shared) {
+            this.response = response;
+            this.shared = shared;
+        }
+
+        public GeminiResponse getResponse() {
+            return response;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+    }
+
+    private static final class Flight {
+        final CompletableFuture<GeminiResponse> result = new CompletableFuture<>();
+        final StringBuilder text = new StringBuilder();
+        final List<Consumer<String>> subscribers = new ArrayList<>();
+        int waiters;
+        volatile Future<?> task;
+
+        synchronized void publish(String chunk) {
+            text.append(chunk);
+            for (Consumer<String> subscriber : subscribers) {
+                subscriber.accept(chunk);
+            }
+        }
+
+        synchronized void subscribe(Consumer<String> subscriber) {
+            // Replay what earlier subscribers have already received
+            if (text.length() > 0) {
+                subscriber.accept(text.toString());
+            }
+            subscribers.add(subscriber);
+        }
+
+        synchronized void unsubscribe(Consumer<String> subscriber) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * Exécute call une seule fois pour toutes les demandes concurrentes de même clé.
+     *
+     * @param call   reçoit le consommateur auquel transmettre les fragments de texte
+     * @param onText consommateur de cette demande, ou null si elle n'attend que la réponse finale
+     */
+    public Result execute(String key, Function<Consumer<String>, GeminiResponse> call, Consumer<String> onText) {
+        Flight flight;
+        boolean leader;
+        synchronized (flights) {
+            flight = flights.get(key);
+            leader = flight == null;
+            if (leader) {
+                flight = new Flight();
+                flights.put(key, flight);
+            }
+            flight.waiters++;
+        }
+        Metrics.increment(leader ? LEADERS : SAVED);
+        if (onText != null) {
+            flight.subscribe(onText);
+        }
+        if (leader) {
+            Flight started = flight;
+            flight.task = executor.submit(() -> run(key, started, call));
+        }
+
+        try {
+            return new Result(flight.result.get(), !leader);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeminiException("Requête Gemini interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GeminiException("Erreur lors de l'appel à l'API Gemini : " + cause.getMessage(), cause);
+        } finally {
+            if (onText != null) {
+                flight.unsubscribe(onText);
+            }
+            leave(key, flight);
+        }
+    }
+
+    private void run(String key, Flight flight, Function<Consumer<String>, GeminiResponse> call) {
+        GeminiResponse response = null;
+        Throwable failure = null;
+        try {
+            response = call.apply(flight::publish);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        // Removed before completing: a request arriving now starts a new call instead of getting
+        // this answer, which may not have been cached (truncated, empty)
+        synchronized (flights) {
+            flights.remove(key, flight);
+        }
+        if (failure == null) {
+            flight.result.complete(response);
+        } else {
+            flight.result.completeExceptionally(failure);
+        }
+    }
+
+    private void leave(String key, Flight flight) {
+        synchronized (flights) {
+            if (--flight.waiters > 0 || flight.result.isDone()) {
+                return;
+            }
+            // Nobody is waiting any more: abort the HTTP exchange
+            flights.remove(key, flight);
+        }
+        Future<?> task = flight.task;
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
+}
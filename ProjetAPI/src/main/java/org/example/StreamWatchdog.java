@@ -0,0 +1,124 @@
+package org.example;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Corps de réponse surveillé : si rien n'arrive pendant idleMillis, ou si l'échéance passe,
+ * un thread de surveillance ferme le flux. L'échange HTTP est alors abandonné, la connexion
+ * libérée, et la lecture en cours s'arrête sur une {@link GeminiTimeoutException}.
+ * HttpRequest.timeout ne couvre que l'attente des en-têtes : sans cela, un serveur qui cesse
+ * d'envoyer au milieu d'un corps bloquerait le thread de lecture indéfiniment.
+ */
+final class StreamWatchdog extends FilterInputStream {
+
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(AppExecutors.threadFactory("stream-watchdog"));
+
+    private final long idleMillis;
+    private final Deadline deadline;
+    private volatile long lastRead = System.nanoTime();
+    private volatile GeminiTimeoutException timeout;
+    private ScheduledFuture<?> check;
+    private boolean closed;
+
+    /**
+     * @param idleMillis silence toléré entre deux lectures ; 0 pour ne surveiller que l'échéance
+     */
+    StreamWatchdog(InputStream in, long idleMillis, Deadline deadline) {
+        super(in);
+        this.idleMillis = idleMillis;
+        this.deadline = deadline;
+        schedule();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = guard(() -> super.read());
+        lastRead = System.nanoTime();
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = guard(() -> super.read(buffer, offset, length));
+        lastRead = System.nanoTime();
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            if (check != null) {
+                check.cancel(false);
+            }
+        }
+        super.close();
+    }
+
+    private interface Read {
+        int run() throws IOException;
+    }
+
+    // Once the watchdog has closed the stream, the read ends with an error or an early end of
+    // stream: both are reported as the timeout
+    private int guard(Read read) throws IOException {
+        int result;
+        try {
+            result = read.run();
+        } catch (IOException e) {
+            if (timeout != null) {
+                throw timeout;
+            }
+            throw e;
+        }
+        if (timeout != null) {
+            throw timeout;
+        }
+        return result;
+    }
+
+    private synchronized void schedule() {
+        if (closed) {
+            return;
+        }
+        long delay = Math.min(deadline.remainingMillis(), idleMillis > 0 ? idleMillis : Long.MAX_VALUE);
+        if (delay == Long.MAX_VALUE) {
+            return; // nothing to watch
+        }
+        if (idleMillis > 0) {
+            delay = Math.min(delay, idleMillis - (System.nanoTime() - lastRead) / 1_000_000);
+        }
+        check = TIMER.schedule(this::check, Math.max(1, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void check() {
+        if (deadline.isExpired()) {
+            abort(deadline.expired(null));
+        } else if (idleMillis > 0 && System.nanoTime() - lastRead >= idleMillis * 1_000_000) {
+            abort(GeminiTimeoutException.expired(GeminiTimeoutException.Stage.STREAM_IDLE, idleMillis, null));
+        } else {
+            schedule();
+        }
+    }
+
+    private void abort(GeminiTimeoutException expired) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            timeout = expired;
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            System.out.println("Warning: could not abort stalled response: " + e.getMessage());
+        }
+    }
+}
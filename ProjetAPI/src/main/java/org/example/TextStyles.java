@@ -0,0 +1,50 @@
+package org.example;
+
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+
+/**
+ * Polices et couleurs du résultat, créées une seule fois et partagées par tous les nœuds
+ * au lieu d'un appel à Font.font(...) par segment de texte.
+ */
+final class TextStyles {
+
+    static final Color ACCENT = Color.web(Main.ACCENT_COLOR);
+    static final Color SECONDARY = Color.web(Main.SECONDARY_COLOR);
+
+    static final double BODY_SIZE = 14;
+
+    // Index: size slot * 4 + bold * 2 + italic
+    private static final double[] SIZES = {BODY_SIZE, 18, 20, 24};
+    private static final Font[] FONTS = new Font[SIZES.length * 4];
+
+    static {
+        for (int slot = 0; slot < SIZES.length; slot++) {
+            for (int style = 0; style < 4; style++) {
+                FONTS[slot * 4 + style] = Font.font("System",
+                        (style & 2) != 0 ? FontWeight.BOLD : FontWeight.NORMAL,
+                        (style & 1) != 0 ? FontPosture.ITALIC : FontPosture.REGULAR,
+                        SIZES[slot]);
+            }
+        }
+    }
+
+    private TextStyles() {
+    }
+
+    static Font body(boolean bold, boolean italic) {
+        return FONTS[(bold ? 2 : 0) + (italic ? 1 : 0)];
+    }
+
+    /** Police d'un titre : 24 pour h1, 20 pour h2, 18 au-delà ; toujours en gras. */
+    static Font heading(int level, boolean italic) {
+        int slot = level == 1 ? 3 : level == 2 ? 2 : 1;
+        return FONTS[slot * 4 + 2 + (italic ? 1 : 0)];
+    }
+
+    static Color headingColor(int level) {
+        return level <= 2 ? ACCENT : SECONDARY;
+    }
+}
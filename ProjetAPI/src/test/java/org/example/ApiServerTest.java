@@ -0,0 +1,156 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Limites par client et lecture des requêtes du serveur HTTP, avec Gemini remplacé par {@link StubGeminiServer}.
+ */
+public class ApiServerTest {
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<Socket> slowClients = new ArrayList<>();
+    private StubGeminiServer gemini;
+    private ApiServer server;
+
+    @Before
+    public void startGemini() throws IOException {
+        Metrics.reset();
+        gemini = new StubGeminiServer("# Titre\nTexte.", 500);
+    }
+
+    @After
+    public void stop() throws IOException {
+        for (Socket socket : slowClients) {
+            socket.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        gemini.close();
+    }
+
+    private void startServer(int maxPerClient, Set<String> trustedProxies) throws IOException {
+        GeminiClient client = new GeminiClient(GeminiClient.sharedHttpClient(), "test-key", gemini.getBaseUrl(),
+                "test-model", Duration.ofSeconds(10));
+        server = new ApiServer(new GenerationService(client, new ResponseCache(100, 60_000, null, 0)),
+                "127.0.0.1", 0, 4, 4, maxPerClient, trustedProxies);
+        server.start();
+    }
+
+    private HttpRequest generate(String subject, String clientId) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort()
+                        + "/v1/generate"))
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"subject\": \"" + subject + "\"}"));
+        if (clientId != null) {
+            request.header("X-Client-Id", clientId);
+        }
+        return request.build();
+    }
+
+    private int status(HttpRequest request) throws IOException, InterruptedException {
+        return http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    // The slot is given back just after the response is written, so the client may see it a moment later
+    private int statusOnceReleased(HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int status = status(request);
+        while (status == 429 && System.nanoTime() - start < 2_000_000_000L) {
+            Thread.sleep(10);
+            status = status(request);
+        }
+        return status;
+    }
+
+    // Sends one request and returns once Gemini has received it, the request still in flight
+    private CompletableFuture<HttpResponse<String>> inFlight(String subject, String clientId)
+            throws InterruptedException {
+        long before = gemini.getRequestCount();
+        CompletableFuture<HttpResponse<String>> response = http.sendAsync(generate(subject, clientId),
+                HttpResponse.BodyHandlers.ofString());
+        long start = System.nanoTime();
+        while (gemini.getRequestCount() == before && System.nanoTime() - start < 5_000_000_000L) {
+            Thread.sleep(5);
+        }
+        return response;
+    }
+
+    @Test
+    public void clientIdHeaderFromAnUntrustedAddressIsIgnored() throws Exception {
+        startServer(1, Set.of());
+        CompletableFuture<HttpResponse<String>> first = inFlight("premier", "client-a");
+
+        // A new id per request no longer escapes the per-address limit
+        assertEquals(429, status(generate("second", "client-b")));
+        assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, Metrics.get("api.rejected.client"));
+        // The slot is given back once the request ends
+        assertEquals(200, statusOnceReleased(generate("troisième", "client-c")));
+    }
+
+    @Test
+    public void trustedProxyNamesItsClients() throws Exception {
+        startServer(1, Set.of("127.0.0.1"));
+        CompletableFuture<HttpResponse<String>> first = inFlight("premier", "client-a");
+
+        assertEquals(429, status(generate("second", "client-a")));
+        assertEquals(200, status(generate("autre", "client-b")));
+        assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+    }
+
+    @Test
+    public void slowBodiesDoNotStallOtherRoutes() throws Exception {
+        startServer(4, Set.of());
+        // More stalled uploads than the server has HTTP threads
+        for (int i = 0; i < 3; i++) {
+            Socket socket = new Socket("127.0.0.1", server.getPort());
+            slowClients.add(socket);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /v1/generate HTTP/1.1\r\nHost: localhost\r\nContent-Length: 100\r\n\r\n{\"sub")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+        Thread.sleep(100);
+
+        HttpResponse<String> health = http.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:"
+                        + server.getPort() + "/health")).timeout(Duration.ofSeconds(2)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, health.statusCode());
+        assertTrue(health.body(), health.body().contains("\"status\":\"ok\""));
+    }
+
+    @Test
+    public void invalidBodiesAreStillRejected() throws Exception {
+        startServer(4, Set.of());
+        HttpRequest notJson = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort()
+                + "/v1/generate")).POST(HttpRequest.BodyPublishers.ofString("pas du JSON")).build();
+
+        assertEquals(400, status(notJson));
+        assertEquals(400, status(generate(" ", null)));
+        assertEquals(0, gemini.getRequestCount());
+        // Rejected requests give their slot back
+        assertEquals(200, status(generate("sujet", null)));
+    }
+}
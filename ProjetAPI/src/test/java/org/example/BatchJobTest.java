@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchJobTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<BatchJob> read(String name, String content) throws IOException {
+        Path input = folder.getRoot().toPath().resolve(name);
+        Files.write(input, content.getBytes(StandardCharsets.UTF_8));
+        return BatchJob.readAll(input);
+    }
+
+    private void assertRejected(String name, String content, String reason) throws IOException {
+        try {
+            read(name, content);
+            fail("should be rejected: " + content);
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(reason));
+        }
+    }
+
+    @Test
+    public void csvWithHeaderAndDefaultIds() throws IOException {
+        List<BatchJob> jobs = read("sujets.csv", "contentType,subject,id\n"
+                + "Article,\"Énergie solaire, bilan\"\n"
+                + "Résumé,éolien,eolien-v2.1\n");
+
+        assertEquals(2, jobs.size());
+        assertEquals("0002-energie-solaire-bilan", jobs.get(0).getId());
+        assertEquals("Énergie solaire, bilan", jobs.get(0).getSubject());
+        assertEquals("eolien-v2.1", jobs.get(1).getId());
+    }
+
+    @Test
+    public void jsonlIdsAndDefaults() throws IOException {
+        List<BatchJob> jobs = read("sujets.jsonl", "{\"id\": \"a_1\", \"subject\": \"Marées\"}\n"
+                + "\n"
+                + "{\"contentType\": \"Rapport\", \"subject\": \"Houle\"}\n");
+
+        assertEquals("a_1", jobs.get(0).getId());
+        assertEquals("Article", jobs.get(0).getContentType());
+        assertEquals("0003-houle", jobs.get(1).getId());
+    }
+
+    @Test
+    public void idsThatAreNotPlainFileNamesAreRejected() throws IOException {
+        assertRejected("sujets.jsonl", "{\"id\": \"../../x\", \"subject\": \"s\"}", "invalide");
+        assertRejected("sujets.jsonl", "{\"id\": \"/tmp/y\", \"subject\": \"s\"}", "invalide");
+        assertRejected("sujets.csv", "Article,s,..\n", "invalide");
+        assertRejected("sujets.csv", "Article,s,dossier\\\\x\n", "invalide");
+        assertRejected("sujets.csv", "Article,s,.checkpoint\n", "invalide");
+        assertRejected("sujets.csv", "Article,s," + "x".repeat(101) + "\n", "invalide");
+        assertRejected("sujets.csv", "Article,s,même\n", "invalide");
+    }
+
+    @Test
+    public void duplicateIdsAreRejected() throws IOException {
+        assertRejected("sujets.csv", "Article,un,meme\nRésumé,deux,meme\n", "Ligne 2 : identifiant en double");
+    }
+}
@@ -0,0 +1,134 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GeminiClientTest {
+
+    private static final String TEXT = "# Titre\n\nUn premier paragraphe, puis un second assez long pour plusieurs fragments.";
+
+    private StubGeminiServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new StubGeminiServer(TEXT, 0);
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    private GeminiClient client() {
+        return new GeminiClient(GeminiClient.sharedHttpClient(), "test-key", server.getBaseUrl(), "test-model",
+                Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void streamDeliversEveryChunkAndTheFinalUsage() {
+        server.setStreamChunks(5);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        GeminiResponse response = client().streamGenerate("sujet", Deadline.none(), chunks::add);
+
+        assertEquals(5, chunks.size());
+        assertEquals(TEXT, String.join("", chunks));
+        assertEquals(TEXT, response.getText());
+        assertEquals("STOP", response.getFinishReason());
+        assertEquals(12, response.getPromptTokenCount());
+        assertTrue(response.getCandidatesTokenCount() > 0);
+        assertEquals(12 + response.getCandidatesTokenCount(), response.getTotalTokenCount());
+    }
+
+    @Test
+    public void blockingCallReturnsTrimmedText() {
+        server.setResponseText("  \n" + TEXT + "\n\n");
+
+        GeminiResponse response = client().generate("sujet", Deadline.none());
+
+        assertEquals(TEXT, response.getText());
+        assertEquals("STOP", response.getFinishReason());
+    }
+
+    @Test
+    public void clientsShareOneHttpClientAndItsConnections() {
+        assertSame(GeminiClient.sharedHttpClient(), GeminiClient.sharedHttpClient());
+
+        for (int i = 0; i < 10; i++) {
+            if (i % 3 == 2) {
+                client().streamGenerate("sujet " + i, Deadline.none(), chunk -> { });
+            } else {
+                client().generate("sujet " + i, Deadline.none());
+            }
+        }
+
+        assertEquals(10, server.getRequestCount());
+        // A connection goes back to the pool just after the body is read, so the next call
+        // sometimes opens another one; one client per call would open ten
+        assertTrue("connections: " + server.getConnectionCount(), server.getConnectionCount() <= 4);
+    }
+
+    @Test
+    public void serverErrorKeepsStatusAndRetryAfter() {
+        server.failNext(1, 503, 3);
+
+        GeminiException e = expectFailure(() -> client().generate("sujet", Deadline.none()));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(3000, e.getRetryAfterMillis());
+    }
+
+    @Test
+    public void streamingErrorKeepsStatusAndRetryAfter() {
+        server.failNext(1, 429, 1);
+
+        GeminiException e = expectFailure(() -> client().streamGenerate("sujet", Deadline.none(), chunk -> {
+            fail("no text expected");
+        }));
+
+        assertEquals(429, e.getStatusCode());
+        assertEquals(1000, e.getRetryAfterMillis());
+    }
+
+    @Test
+    public void clientErrorWithoutRetryAfter() {
+        server.failNext(1, 400, -1);
+
+        GeminiException e = expectFailure(() -> client().generate("sujet", Deadline.none()));
+
+        assertEquals(400, e.getStatusCode());
+        assertEquals(-1, e.getRetryAfterMillis());
+    }
+
+    @Test
+    public void droppedConnectionIsANetworkError() {
+        server.failNext(1, 0, -1);
+
+        GeminiException e = expectFailure(() -> client().generate("sujet", Deadline.none()));
+
+        assertEquals(0, e.getStatusCode());
+        assertTrue(e.getCause() instanceof IOException);
+    }
+
+    static GeminiException expectFailure(Runnable call) {
+        try {
+            call.run();
+        } catch (GeminiException e) {
+            assertNotNull(e.getMessage());
+            return e;
+        }
+        throw new AssertionError("GeminiException expected");
+    }
+}
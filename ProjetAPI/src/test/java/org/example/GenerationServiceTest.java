@@ -0,0 +1,98 @@
+package org.example;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GenerationServiceTest {
+
+    private static ResponseCache memoryCache() {
+        return new ResponseCache(100, 60_000, null, 0);
+    }
+
+    @Test
+    public void completeAnswerIsCachedWithItsFinishReason() {
+        ScriptedProvider provider = new ScriptedProvider().then("# Titre\nTexte.", "STOP");
+        GenerationService service = new GenerationService(provider, memoryCache());
+
+        GenerationResult first = service.generate("prompt", false);
+        GenerationResult second = service.generate("prompt", false);
+
+        assertEquals("STOP", first.getFinishReason());
+        assertTrue(first.isComplete());
+        assertEquals(CacheOutcome.MEMORY_HIT, second.getCacheOutcome());
+        assertEquals("# Titre\nTexte.", second.getText());
+        assertEquals("STOP", second.getFinishReason());
+        assertEquals(1, provider.calls);
+    }
+
+    @Test
+    public void truncatedAnswerIsReturnedButNotCached() {
+        ScriptedProvider provider = new ScriptedProvider()
+                .then("# Titre\nUn texte coup", "MAX_TOKENS")
+                .then("# Titre\nUn texte complet.", "STOP");
+        ResponseCache cache = memoryCache();
+        GenerationService service = new GenerationService(provider, cache);
+
+        GenerationResult truncated = service.generate("prompt", false);
+
+        assertEquals("MAX_TOKENS", truncated.getFinishReason());
+        assertFalse(truncated.isComplete());
+        assertNull(cache.get("test-model", "prompt"));
+        assertEquals("# Titre\nUn texte complet.", service.generate("prompt", false).getText());
+        assertEquals(2, provider.calls);
+    }
+
+    @Test
+    public void blockedOrEmptyAnswersAreNotCached() {
+        ScriptedProvider provider = new ScriptedProvider()
+                .then("", "SAFETY")
+                .then(GeminiResponseDecoder.NO_CANDIDATES, null)
+                .then(GeminiResponseDecoder.NO_TEXT_PART, "STOP")
+                .then("  \n", "STOP");
+        ResponseCache cache = memoryCache();
+        GenerationService service = new GenerationService(provider, cache);
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(service.generate("prompt", false).isComplete());
+            assertNull(cache.get("test-model", "prompt"));
+        }
+        assertEquals(4, provider.calls);
+    }
+
+    @Test
+    public void emptyStreamIsNotCached() {
+        ScriptedProvider provider = new ScriptedProvider().then("", "STOP").then("Texte.", "STOP");
+        ResponseCache cache = memoryCache();
+        GenerationService service = new GenerationService(provider, cache);
+
+        assertFalse(service.stream("prompt", false, chunk -> { }).isComplete());
+        assertNull(cache.get("test-model", "prompt"));
+        assertTrue(service.stream("prompt", false, chunk -> { }).isComplete());
+        assertEquals("Texte.", cache.get("test-model", "prompt").getText());
+    }
+
+    @Test
+    public void unexpectedFailureGivesTheTokensBack() {
+        // A bucket of 5 000 tokens; an attempt is charged about 2 000
+        RateLimiter limiter = new RateLimiter(0, 10_000);
+        // Nothing queued: the provider throws NoSuchElementException, not a GeminiException
+        GenerationService service = new GenerationService(new ScriptedProvider(), memoryCache(),
+                ResilientCaller.none(), limiter);
+
+        try {
+            service.generate("prompt", false);
+            fail("the provider should fail");
+        } catch (RuntimeException expected) {
+            // The failure itself is not the point
+        }
+
+        // Only fits at once if the failed attempt's tokens were returned
+        limiter.acquire(RateLimiter.Requester.DEFAULT, 4_500, Deadline.after(50)).complete(
+                new GeminiResponse("texte", "STOP", 0, 0, 0));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static HistoryStore.Record record(String subject, String text) {
+        return new HistoryStore.Record(System.currentTimeMillis(), "Article", subject, "test-model", "prompt " + subject,
+                120, 10, 20, text);
+    }
+
+    @Test
+    public void documentsSurviveReopening() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            store.append(record("énergie solaire", "# Solaire\nDes panneaux."));
+            store.append(record("éolien", "# Éolien\nDes turbines."));
+        }
+
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            assertEquals(2, store.size());
+            assertEquals("# Éolien\nDes turbines.", store.read(1).getText());
+            List<HistoryStore.Entry> found = store.search("energie", 10);
+            assertEquals(1, found.size());
+            assertEquals("énergie solaire", found.get(0).getSubject());
+        }
+    }
+
+    @Test
+    public void secondOpenIsRefusedUntilTheFirstIsClosed() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        HistoryStore first = HistoryStore.open(directory);
+        try {
+            HistoryStore.open(directory).close();
+            fail("the history should be locked");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("autre instance"));
+        } finally {
+            first.close();
+        }
+
+        try (HistoryStore reopened = HistoryStore.open(directory)) {
+            assertEquals(0, reopened.size());
+        }
+    }
+
+    @Test
+    public void tornTailIsCutBeforeTheJournalIsMapped() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            store.append(record("premier", "Texte complet."));
+            store.append(record("second", "Texte qui sera tronqué."));
+        }
+        Path log = directory.resolve("history.log");
+        long fullSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 5);
+        }
+
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            assertEquals(1, store.size());
+            assertEquals("Texte complet.", store.read(0).getText());
+            store.append(record("troisième", "Ajouté après la réparation."));
+        }
+
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            assertEquals(2, store.size());
+            assertEquals("Ajouté après la réparation.", store.read(1).getText());
+        }
+    }
+
+    @Test
+    public void garbageAfterTheLastRecordIsDiscarded() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            store.append(record("sujet", "Texte."));
+        }
+        Path log = directory.resolve("history.log");
+        long validSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2, 3}));
+        }
+
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            assertEquals(1, store.size());
+        }
+        assertEquals(validSize, Files.size(log));
+    }
+
+    @Test
+    public void recordsMissingFromTheIndexAreRecovered() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            store.append(record("un", "Premier."));
+            store.append(record("deux", "Second."));
+        }
+        Files.delete(directory.resolve("history.idx"));
+
+        try (HistoryStore store = HistoryStore.open(directory)) {
+            assertEquals(2, store.size());
+            assertEquals("Second.", store.read(1).getText());
+        }
+        assertEquals(16, Files.size(directory.resolve("history.idx")));
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import org.example.MarkdownDocument.Block;
+import org.example.MarkdownDocument.Span;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MarkdownParserTest {
+
+    // "HEADING2 Titre", spans joined by '|', bold as **x** and italic as *x*
+    private static String describe(Block block) {
+        StringBuilder out = new StringBuilder(block.getType().name());
+        if (block.getLevel() > 0) {
+            out.append(block.getLevel());
+        }
+        out.append(' ');
+        for (int i = 0; i < block.getSpans().size(); i++) {
+            Span span = block.getSpans().get(i);
+            String marker = span.isBold() ? "**" : span.isItalic() ? "*" : "";
+            out.append(i > 0 ? "|" : "").append(marker).append(span.getText()).append(marker);
+        }
+        return out.toString().trim();
+    }
+
+    private static List<String> describe(List<Block> blocks) {
+        List<String> described = new ArrayList<>();
+        for (Block block : blocks) {
+            described.add(describe(block));
+        }
+        return described;
+    }
+
+    private static String line(String text) {
+        return describe(MarkdownParser.parseLine(text, 0, text.length()));
+    }
+
+    @Test
+    public void headingsMatchTheOriginalRenderer() {
+        assertEquals("HEADING1 Titre", line("# Titre"));
+        assertEquals("HEADING3 Sous-partie", line("### Sous-partie"));
+        assertEquals("HEADING2", line("## "));
+        // No space after the marks: an ordinary paragraph
+        assertEquals("PARAGRAPH #Titre", line("#Titre"));
+        // Like the renderer before the document model, only h1 to h3 are headings
+        assertEquals("PARAGRAPH #### Quatre", line("#### Quatre"));
+        assertEquals("PARAGRAPH ###### |**Six**", line("###### **Six**"));
+        // and heading text keeps its stars
+        assertEquals("HEADING2 Le **point** clé", line("## Le **point** clé"));
+    }
+
+    @Test
+    public void bulletsAndNumberedItems() {
+        assertEquals("BULLET premier", line("* premier"));
+        assertEquals("BULLET deuxième", line("- deuxième"));
+        assertEquals("BULLET troisième", line("· troisième"));
+        assertEquals("BULLET quatrième", line(". quatrième"));
+        assertEquals("BULLET **gras**| en tête", line("* **gras** en tête"));
+        // A star directly followed by text opens italics, not a list item
+        assertEquals("PARAGRAPH *italique*| seul", line("*italique* seul"));
+
+        assertEquals("NUMBERED 1. Premier", line("1. Premier"));
+        assertEquals("NUMBERED   12. Indenté", line("  12. Indenté"));
+        assertEquals("PARAGRAPH 2023 fut une année", line("2023 fut une année"));
+    }
+
+    @Test
+    public void blankLines() {
+        assertEquals("BLANK", line(""));
+        assertEquals("BLANK", line("   \t"));
+        assertEquals("BLANK", line("\r"));
+        assertEquals(List.of("PARAGRAPH a", "BLANK", "BLANK", "PARAGRAPH b"),
+                describe(MarkdownParser.parse("a\r\n\n\r\nb").getBlocks()));
+    }
+
+    @Test
+    public void boldAndItalic() {
+        assertEquals("PARAGRAPH Du |**gras**| et de l'|*italique*|.", line("Du **gras** et de l'*italique*."));
+        assertEquals("PARAGRAPH **un**| et |**deux**", line("**un** et **deux**"));
+        assertEquals("PARAGRAPH **tout**", line("**tout**"));
+        // Empty markers produce no span
+        assertEquals("PARAGRAPH avant | après", line("avant **** après"));
+    }
+
+    @Test
+    public void nestedMarkersAreNotCombined() {
+        // Bold runs to the next "**": the single stars inside stay literal
+        assertEquals("PARAGRAPH **gras *et italique* suite**", line("**gras *et italique* suite**"));
+        // Italics close at the next star, which is the first star of the inner "**"
+        assertEquals("PARAGRAPH *italique *|*gras*|* fin*", line("*italique **gras** fin*"));
+    }
+
+    @Test
+    public void unclosedMarkersStayLiteral() {
+        assertEquals("PARAGRAPH Un **gras sans fin", line("Un **gras sans fin"));
+        assertEquals("PARAGRAPH Une *italique sans fin", line("Une *italique sans fin"));
+        assertEquals("PARAGRAPH **fermé**| puis **ouvert", line("**fermé** puis **ouvert"));
+        assertEquals("PARAGRAPH 3 * 4 = 12", line("3 * 4 = 12"));
+    }
+
+    @Test
+    public void backslashEscapesStarsAndBackslashes() {
+        assertEquals("PARAGRAPH 3 * 4 = 12", line("3 \\* 4 = 12"));
+        assertEquals("PARAGRAPH *a * b*", line("*a \\* b*"));
+        assertEquals("PARAGRAPH **x\\**", line("**x\\\\**"));
+        assertEquals("PARAGRAPH **pas fermé", line("\\**pas fermé"));
+        // Any other backslash is plain text
+        assertEquals("PARAGRAPH C:\\dossier\\", line("C:\\dossier\\"));
+        // Heading text is kept as written
+        assertEquals("HEADING2 Titre \\*", line("## Titre \\*"));
+    }
+
+    @Test
+    public void runOfStarsKeepsItsText() {
+        // Parse cost on long runs is measured by InlineParseBenchmark, not here
+        assertEquals("PARAGRAPH * fin", line("***** fin"));
+        assertEquals("PARAGRAPH ** fin", line("****** fin"));
+    }
+
+    private static final String DOCUMENT = "# Titre principal\r\n"
+            + "\n"
+            + "Un paragraphe avec du **gras** et de l'*italique*.\n"
+            + "## Liste\n"
+            + "* premier point\n"
+            + "- second **point important**\n"
+            + "1. étape une\n"
+            + "\n"
+            + "Fin sans retour à la ligne";
+
+    @Test
+    public void feedingAnySplitGivesTheSameDocument() {
+        List<String> expected = describe(MarkdownParser.parse(DOCUMENT).getBlocks());
+        assertEquals(9, expected.size());
+        assertEquals("HEADING1 Titre principal", expected.get(0));
+        assertEquals("BULLET second |**point important**", expected.get(5));
+
+        for (int split = 0; split <= DOCUMENT.length(); split++) {
+            MarkdownParser parser = new MarkdownParser();
+            List<Block> emitted = new ArrayList<>(parser.feed(DOCUMENT.substring(0, split)));
+            emitted.addAll(parser.feed(DOCUMENT.substring(split)));
+            emitted.addAll(parser.finish());
+            assertEquals("split at " + split, expected, describe(emitted));
+            assertEquals("split at " + split, expected, describe(parser.getDocument().getBlocks()));
+        }
+    }
+
+    @Test
+    public void feedReturnsOnlyCompletedLines() {
+        MarkdownParser parser = new MarkdownParser();
+
+        assertEquals(List.of(), describe(parser.feed("# Ti")));
+        assertEquals(List.of("HEADING1 Titre"), describe(parser.feed("tre\nDu **gr")));
+        assertEquals(List.of(), describe(parser.feed("as")));
+        // The line break of a CRLF pair arrives in the next chunk
+        assertEquals(List.of(), describe(parser.feed("** ici\r")));
+        assertEquals(List.of("PARAGRAPH Du |**gras**| ici"), describe(parser.feed("\n- item")));
+        assertEquals(List.of("BULLET item"), describe(parser.finish()));
+        assertEquals(List.of(), describe(parser.finish()));
+    }
+
+    @Test
+    public void charByCharFeedMatchesParse() {
+        MarkdownParser parser = new MarkdownParser();
+        for (int i = 0; i < DOCUMENT.length(); i++) {
+            parser.feed(DOCUMENT.substring(i, i + 1));
+        }
+        parser.finish();
+        assertEquals(describe(MarkdownParser.parse(DOCUMENT).getBlocks()),
+                describe(parser.getDocument().getBlocks()));
+    }
+}
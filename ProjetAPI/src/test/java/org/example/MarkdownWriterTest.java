@@ -0,0 +1,61 @@
+package org.example;
+
+import org.example.MarkdownDocument.Block;
+import org.example.MarkdownDocument.BlockType;
+import org.example.MarkdownDocument.Span;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MarkdownWriterTest {
+
+    private static void assertSameBlocks(List<Block> expected, List<Block> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Block want = expected.get(i);
+            Block got = actual.get(i);
+            assertEquals("block " + i, want.getType(), got.getType());
+            assertEquals("block " + i, want.getLevel(), got.getLevel());
+            assertEquals("block " + i, want.getText(), got.getText());
+            for (int j = 0; j < want.getSpans().size(); j++) {
+                assertEquals("block " + i, want.getSpans().get(j).isBold(), got.getSpans().get(j).isBold());
+                assertEquals("block " + i, want.getSpans().get(j).isItalic(), got.getSpans().get(j).isItalic());
+            }
+        }
+    }
+
+    @Test
+    public void literalStarsAndBackslashesSurviveARoundTrip() {
+        List<Block> blocks = List.of(
+                new Block(BlockType.HEADING, 2, List.of(new Span("Le **point** clé", false, false))),
+                new Block(BlockType.PARAGRAPH, 0, List.of(new Span("3 * 4 = 12, C:\\dossier\\", false, false),
+                        new Span("gras *étoilé*", true, false), new Span(" et ", false, false),
+                        new Span("italique\\", false, true))),
+                new Block(BlockType.BULLET, 0, List.of(new Span("** pas du gras", false, false))),
+                new Block(BlockType.BLANK, 0, List.of()));
+
+        String markdown = MarkdownWriter.toMarkdown(blocks);
+
+        assertEquals("## Le **point** clé\n"
+                + "3 \\* 4 = 12, C:\\\\dossier\\\\**gras \\*étoilé\\*** et *italique\\\\*\n"
+                + "- \\*\\* pas du gras\n"
+                + "\n", markdown);
+        assertSameBlocks(blocks, MarkdownParser.parse(markdown).getBlocks());
+    }
+
+    @Test
+    public void parsedDocumentIsWrittenBackUnchanged() {
+        String source = "# Titre\n"
+                + "\n"
+                + "Du **gras**, de l'*italique* et 3 \\* 4.\n"
+                + "- un point\n"
+                + "1. une étape\n"
+                + "#### Pas un titre\n";
+
+        List<Block> parsed = MarkdownParser.parse(source).getBlocks();
+
+        assertSameBlocks(parsed, MarkdownParser.parse(MarkdownWriter.toMarkdown(parsed)).getBlocks());
+    }
+}
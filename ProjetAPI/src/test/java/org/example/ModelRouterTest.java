@@ -0,0 +1,170 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.example.GeminiClientTest.expectFailure;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Routage entre plusieurs points d'accès locaux ({@link StubGeminiServer}), un par clé et modèle.
+ */
+public class ModelRouterTest {
+
+    private final List<StubGeminiServer> servers = new ArrayList<>();
+
+    @Before
+    public void resetMetrics() {
+        Metrics.reset();
+    }
+
+    @After
+    public void stopServers() {
+        servers.forEach(StubGeminiServer::close);
+    }
+
+    private ModelRouter.Endpoint endpoint(String name, String model, long latencyMillis) throws IOException {
+        StubGeminiServer server = new StubGeminiServer("Réponse de " + name, latencyMillis);
+        servers.add(server);
+        return new ModelRouter.Endpoint(name, new GeminiClient(GeminiClient.sharedHttpClient(), "test-key",
+                server.getBaseUrl(), model, Duration.ofSeconds(10)));
+    }
+
+    private StubGeminiServer server(int index) {
+        return servers.get(index);
+    }
+
+    @Test
+    public void fastestEndpointGetsTheTraffic() throws IOException {
+        ModelRouter router = new ModelRouter(List.of(endpoint("lent", "flash", 300), endpoint("rapide", "flash", 5),
+                endpoint("moyen", "flash", 150)), Set.of("flash"), Map.of(), 3, 30_000);
+
+        // The first three calls measure each endpoint once
+        for (int i = 0; i < 23; i++) {
+            router.generate("prompt " + i, Deadline.none());
+        }
+
+        assertEquals(1, server(0).getRequestCount());
+        assertEquals(21, server(1).getRequestCount());
+        assertEquals(1, server(2).getRequestCount());
+        assertEquals(21, Metrics.get(ModelRouter.ROUTED_PREFIX + "rapide"));
+        assertEquals(1, Metrics.get(ModelRouter.ROUTED_PREFIX + "lent"));
+    }
+
+    @Test
+    public void streamingIsRoutedToo() throws IOException {
+        ModelRouter router = new ModelRouter(List.of(endpoint("lent", "flash", 300), endpoint("rapide", "flash", 5)),
+                Set.of("flash"), Map.of(), 3, 30_000);
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 6; i++) {
+            text.setLength(0);
+            router.streamGenerate("prompt " + i, Deadline.none(), text::append);
+        }
+
+        assertEquals("Réponse de rapide", text.toString());
+        assertEquals(5, server(1).getRequestCount());
+    }
+
+    @Test
+    public void failingEndpointIsEjectedThenRecovers() throws Exception {
+        ModelRouter router = new ModelRouter(List.of(endpoint("rapide", "flash", 5), endpoint("lent", "flash", 300)),
+                Set.of("flash"), Map.of(), 2, 1_000);
+        router.generate("mesure 1", Deadline.none());
+        router.generate("mesure 2", Deadline.none());
+
+        server(0).failNext(2, 503, -1);
+        assertEquals(503, expectFailure(() -> router.generate("échec 1", Deadline.none())).getStatusCode());
+        assertEquals(503, expectFailure(() -> router.generate("échec 2", Deadline.none())).getStatusCode());
+        assertEquals(1, Metrics.get(ModelRouter.EJECTED));
+        assertEquals(2, Metrics.get(ModelRouter.ERRORS_PREFIX + "rapide"));
+        assertTrue(router.describe().get(0).endsWith(" écarté"));
+
+        // Set aside: everything goes to the slow endpoint
+        for (int i = 0; i < 2; i++) {
+            assertEquals("Réponse de lent", router.generate("écarté " + i, Deadline.none()).getText());
+        }
+        assertEquals(3, server(0).getRequestCount());
+
+        // Back after ejectMillis, and its success resets the failure count
+        Thread.sleep(1_000);
+        assertEquals("Réponse de rapide", router.generate("retour", Deadline.none()).getText());
+        assertEquals("Réponse de rapide", router.generate("retour 2", Deadline.none()).getText());
+        assertTrue(router.describe().get(0).startsWith("rapide") && !router.describe().get(0).endsWith(" écarté"));
+    }
+
+    @Test
+    public void clientErrorsDoNotEject() throws IOException {
+        ModelRouter router = new ModelRouter(List.of(endpoint("seul", "flash", 5)), Set.of("flash"), Map.of(), 1, 30_000);
+        server(0).failNext(3, 400, -1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(400, expectFailure(() -> router.generate("requête", Deadline.none())).getStatusCode());
+        }
+
+        assertEquals(0, Metrics.get(ModelRouter.EJECTED));
+        assertEquals("Réponse de seul", router.generate("requête", Deadline.none()).getText());
+    }
+
+    @Test
+    public void pinnedContentTypeUsesItsModelAndFallsBack() throws IOException {
+        ModelRouter router = new ModelRouter(List.of(endpoint("flash", "flash", 5), endpoint("pro", "pro", 20)),
+                Set.of("flash"), Map.of("Rapport", "pro"), 2, 30_000);
+        ModelProvider report = router.forContentType("Rapport");
+
+        assertEquals("pro", report.getModel());
+        assertEquals("flash", router.getModel());
+        assertEquals("flash", router.forContentType("Article").getModel());
+        assertEquals("Réponse de pro", report.generate("rapport", Deadline.none()).getText());
+
+        server(1).failNext(2, 500, -1);
+        expectFailure(() -> report.generate("rapport", Deadline.none()));
+        expectFailure(() -> report.generate("rapport", Deadline.none()));
+
+        // Every endpoint of the pinned model is set aside: the pool answers instead
+        assertEquals("Réponse de flash", report.generate("rapport", Deadline.none()).getText());
+        assertEquals(1, Metrics.get(ModelRouter.PIN_FALLBACK));
+    }
+
+    @Test
+    public void unpinnedCallsNeverReachAPinnedOnlyModel() throws Exception {
+        // The pinned model is faster and idle: it would win every unpinned call if it were in the pool
+        ModelRouter router = new ModelRouter(List.of(endpoint("flash", "flash", 60), endpoint("pro", "pro", 1)),
+                Set.of("flash"), Map.of("Rapport", "pro"), 2, 30_000);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Réponse de flash", router.forContentType("Article").generate("article " + i,
+                    Deadline.none()).getText());
+        }
+
+        assertEquals(5, server(0).getRequestCount());
+        assertEquals(0, server(1).getRequestCount());
+    }
+
+    @Test
+    public void pinnedModelAlsoInThePoolServesEveryone() throws IOException {
+        ModelRouter router = new ModelRouter(List.of(endpoint("flash", "flash", 60), endpoint("pro", "pro", 1)),
+                Set.of("flash", "pro"), Map.of("Rapport", "pro"), 2, 30_000);
+
+        for (int i = 0; i < 5; i++) {
+            router.generate("article " + i, Deadline.none());
+        }
+
+        assertEquals(1, server(0).getRequestCount());
+        assertEquals(4, server(1).getRequestCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void poolModelWithoutEndpointIsRejected() throws IOException {
+        new ModelRouter(List.of(endpoint("pro", "pro", 1)), Set.of("flash"), Map.of(), 2, 30_000);
+    }
+}
@@ -0,0 +1,309 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Budget, comptage des succès et des tokens perdus du préchargement, avec un fournisseur scripté.
+ * Après "Article", les types préchargés sont "Résumé" puis "Rapport" (ordre par défaut).
+ */
+public class PrefetcherTest {
+
+    private static final String SUBJECT = "énergie solaire";
+    private static final BiFunction<String, String, String> PROMPT_FOR = (type, subject) -> type + " : " + subject;
+    // Prompt + candidate tokens of each scripted answer
+    private static final long TOKENS = 30;
+
+    // Holds every call until released; an interrupted wait fails like a cancelled Gemini call
+    private static final class GatedProvider implements ModelProvider {
+        final ScriptedProvider answers = new ScriptedProvider();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public String getModel() {
+            return answers.getModel();
+        }
+
+        @Override
+        public GeminiResponse generate(String prompt, Deadline deadline) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+                throw new GeminiException("Requête Gemini interrompue", e);
+            }
+            return answers.generate(prompt, deadline);
+        }
+
+        @Override
+        public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+            return generate(prompt, deadline);
+        }
+    }
+
+    // Fails the first call with an unexpected exception, then answers
+    private static final class BrokenOnceProvider implements ModelProvider {
+        final ScriptedProvider answers = new ScriptedProvider();
+
+        @Override
+        public String getModel() {
+            return answers.getModel();
+        }
+
+        @Override
+        public GeminiResponse generate(String prompt, Deadline deadline) {
+            synchronized (answers) {
+                if (answers.calls++ == 0) {
+                    throw new IllegalStateException("panne");
+                }
+            }
+            return answers.generate(prompt, deadline);
+        }
+
+        @Override
+        public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+            return generate(prompt, deadline);
+        }
+    }
+
+    private final Object owner = new Object();
+    private PriorityScheduler scheduler;
+    private Prefetcher prefetcher;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+        scheduler = new PriorityScheduler("test-worker", 1);
+    }
+
+    @After
+    public void tearDown() {
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+        scheduler.shutdownNow();
+    }
+
+    private static GenerationService service(ModelProvider provider) {
+        return new GenerationService(provider, new ResponseCache(100, 60_000, null, 0));
+    }
+
+    private static ScriptedProvider answering(int count) {
+        ScriptedProvider provider = new ScriptedProvider();
+        for (int i = 0; i < count; i++) {
+            provider.then("Texte préchargé " + i + ".", "STOP");
+        }
+        return provider;
+    }
+
+    private Prefetcher prefetcher(GenerationService service, long tokensPerHour, int maxTypes) {
+        prefetcher = new Prefetcher(service, scheduler, true, tokensPerHour, maxTypes);
+        return prefetcher;
+    }
+
+    private static void await(String metric, long value) throws InterruptedException {
+        long start = System.nanoTime();
+        while (Metrics.get(metric) < value && System.nanoTime() - start < 5_000_000_000L) {
+            Thread.sleep(5);
+        }
+        assertEquals(metric, value, Metrics.get(metric));
+    }
+
+    private static long estimate(GenerationService service, String type) {
+        return service.getLimiter().estimateTokens(PROMPT_FOR.apply(type, SUBJECT));
+    }
+
+    @Test
+    public void prefetchedAnswerIsCachedAndCountsOneHit() throws InterruptedException {
+        ScriptedProvider provider = answering(2);
+        GenerationService service = service(provider);
+        Prefetcher prefetcher = prefetcher(service, 100_000, 2);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.COMPLETED, 2);
+
+        assertEquals(2, Metrics.get(Prefetcher.STARTED));
+        assertEquals(2 * TOKENS, Metrics.get(Prefetcher.TOKENS));
+        assertEquals(PROMPT_FOR.apply("Résumé", SUBJECT), provider.prompts.get(0));
+        assertEquals(PROMPT_FOR.apply("Rapport", SUBJECT), provider.prompts.get(1));
+
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        assertEquals(CacheOutcome.MEMORY_HIT,
+                service.generate(PROMPT_FOR.apply("Résumé", SUBJECT), false).getCacheOutcome());
+        // A second request for the same document is no longer a prefetch hit
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        assertEquals(1, Metrics.get(Prefetcher.HITS));
+        assertEquals(2, provider.calls);
+    }
+
+    @Test
+    public void budgetIsReservedBeforeTheCallAndCorrectedAfterIt() throws InterruptedException {
+        GenerationService service = service(answering(2));
+        // Room for the first estimate, but not for the second once the first has cost TOKENS
+        long budget = estimate(service, "Résumé") + TOKENS - 1;
+        assertTrue(TOKENS + estimate(service, "Rapport") > budget);
+        Prefetcher prefetcher = prefetcher(service, budget, 2);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.SKIPPED, 1);
+
+        assertEquals(1, Metrics.get(Prefetcher.COMPLETED));
+        assertEquals(TOKENS, Metrics.get(Prefetcher.TOKENS));
+        assertNull(service.getCache().get(service.getModel(), PROMPT_FOR.apply("Rapport", SUBJECT)));
+    }
+
+    @Test
+    public void nothingStartsBeyondTheBudget() throws InterruptedException {
+        ScriptedProvider provider = answering(2);
+        Prefetcher prefetcher = prefetcher(service(provider), 10, 2);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.SKIPPED, 2);
+
+        assertEquals(0, Metrics.get(Prefetcher.STARTED));
+        assertEquals(0, provider.calls);
+    }
+
+    @Test
+    public void nothingStartsWhileUserWorkIsQueued() throws InterruptedException {
+        CountDownLatch busy = new CountDownLatch(1);
+        scheduler.submit(() -> false, () -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        scheduler.submit(() -> false, () -> { });
+        ScriptedProvider provider = answering(2);
+        Prefetcher prefetcher = prefetcher(service(provider), 100_000, 2);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.SKIPPED, 2);
+        busy.countDown();
+
+        assertEquals(0, provider.calls);
+    }
+
+    @Test
+    public void unusedPrefetchesAreWastedWhenTheSubjectChanges() throws InterruptedException {
+        Prefetcher prefetcher = prefetcher(service(answering(2)), 100_000, 2);
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.COMPLETED, 2);
+
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        // Same subject, differently spaced: nothing is lost yet
+        prefetcher.onSubjectChanged(owner, "  énergie   solaire ");
+        assertEquals(0, Metrics.get(Prefetcher.WASTED_TOKENS));
+
+        // Only the unclaimed report counts, and only once
+        prefetcher.onSubjectChanged(owner, "éolien");
+        prefetcher.onSubjectChanged(owner, null);
+        assertEquals(TOKENS, Metrics.get(Prefetcher.WASTED_TOKENS));
+        assertEquals(1, Metrics.get(Prefetcher.HITS));
+    }
+
+    @Test
+    public void closingTheTabWastesItsPrefetches() throws InterruptedException {
+        Prefetcher prefetcher = prefetcher(service(answering(2)), 100_000, 2);
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.COMPLETED, 2);
+
+        // Another tab leaves them alone
+        prefetcher.onSubjectChanged(new Object(), "éolien");
+        assertEquals(0, Metrics.get(Prefetcher.WASTED_TOKENS));
+
+        prefetcher.onSubjectChanged(owner, null);
+        assertEquals(2 * TOKENS, Metrics.get(Prefetcher.WASTED_TOKENS));
+    }
+
+    @Test
+    public void joiningARunningPrefetchCountsOneHitAndNothingWasted() throws InterruptedException {
+        GatedProvider provider = new GatedProvider();
+        provider.answers.then("Résumé préchargé.", "STOP");
+        GenerationService service = service(provider);
+        Prefetcher prefetcher = prefetcher(service, 100_000, 1);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        assertTrue(provider.entered.await(5, TimeUnit.SECONDS));
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        assertEquals(1, Metrics.get(Prefetcher.HITS));
+
+        provider.release.countDown();
+        await(Prefetcher.COMPLETED, 1);
+        assertNotNull(service.getCache().get(service.getModel(), PROMPT_FOR.apply("Résumé", SUBJECT)));
+
+        // Claimed while running: it was used, so changing the subject loses nothing
+        prefetcher.onSubjectChanged(owner, "éolien");
+        assertEquals(0, Metrics.get(Prefetcher.WASTED_TOKENS));
+    }
+
+    @Test
+    public void unexpectedFailureIsForgottenAndTheBatchGoesOn() throws InterruptedException {
+        BrokenOnceProvider provider = new BrokenOnceProvider();
+        provider.answers.then("Rapport préchargé.", "STOP");
+        Prefetcher prefetcher = prefetcher(service(provider), 100_000, 2);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        await(Prefetcher.COMPLETED, 1);
+
+        // The failed Résumé is no longer running, so asking for it is not a hit
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        assertEquals(0, Metrics.get(Prefetcher.HITS));
+        prefetcher.onUserGeneration(owner, "Rapport", SUBJECT);
+        assertEquals(1, Metrics.get(Prefetcher.HITS));
+    }
+
+    @Test
+    public void changingTheSubjectCancelsARunningPrefetch() throws InterruptedException {
+        GatedProvider provider = new GatedProvider();
+        GenerationService service = service(provider);
+        Prefetcher prefetcher = prefetcher(service, 100_000, 1);
+
+        prefetcher.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        assertTrue(provider.entered.await(5, TimeUnit.SECONDS));
+        prefetcher.onSubjectChanged(owner, "éolien");
+
+        assertEquals(1, Metrics.get(Prefetcher.CANCELLED));
+        assertTrue(provider.interrupted.await(5, TimeUnit.SECONDS));
+        // The next batch runs on the same thread, once the cancelled one has cleaned up
+        provider.answers.then("Résumé éolien.", "STOP");
+        provider.release.countDown();
+        prefetcher.onGenerated(owner, "Article", "éolien", PROMPT_FOR);
+        await(Prefetcher.COMPLETED, 1);
+
+        assertNull(service.getCache().get(service.getModel(), PROMPT_FOR.apply("Résumé", SUBJECT)));
+        prefetcher.onUserGeneration(owner, "Résumé", SUBJECT);
+        assertEquals(0, Metrics.get(Prefetcher.HITS));
+        assertEquals(1, provider.answers.calls);
+    }
+
+    @Test
+    public void disabledPrefetcherDoesNothing() {
+        ScriptedProvider provider = answering(2);
+        Prefetcher disabled = new Prefetcher(service(provider), scheduler, false, 100_000, 2);
+
+        disabled.onGenerated(owner, "Article", SUBJECT, PROMPT_FOR);
+        disabled.onUserGeneration(owner, "Résumé", SUBJECT);
+        disabled.shutdown();
+
+        assertEquals(0, provider.calls);
+        assertEquals(0, Metrics.get(Prefetcher.STARTED) + Metrics.get(Prefetcher.HITS));
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+
+    private static final GeminiResponse OK = new GeminiResponse("texte", "STOP", 0, 0, 0);
+
+    // 600 requests per minute: a bucket of 300, refilled by one request every 100 ms
+    private static RateLimiter drained() {
+        RateLimiter limiter = new RateLimiter(600, 0);
+        for (int i = 0; i < 300; i++) {
+            limiter.acquire(RateLimiter.Requester.DEFAULT, 100, Deadline.none()).complete(OK);
+        }
+        return limiter;
+    }
+
+    @Test
+    public void waitWithoutDeadline() {
+        RateLimiter limiter = drained();
+
+        long start = System.nanoTime();
+        // Deadline.none() (textgen.deadline.totalMs=0) used to overflow the wait and throw
+        limiter.acquire(RateLimiter.Requester.DEFAULT, 100, Deadline.none()).complete(OK);
+        limiter.acquire(RateLimiter.Requester.DEFAULT, 100, Deadline.none()).complete(OK);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("waited " + waitedMillis + " ms", waitedMillis >= 100 && waitedMillis < 2_000);
+    }
+
+    @Test
+    public void waitIsCutShortByTheDeadline() {
+        RateLimiter limiter = drained();
+        limiter.acquire(RateLimiter.Requester.DEFAULT, 100, Deadline.none()).complete(OK);
+
+        long start = System.nanoTime();
+        try {
+            // The bucket is empty and the next request needs ~100 ms
+            limiter.acquire(RateLimiter.Requester.DEFAULT, 100, Deadline.after(20));
+            fail("the deadline should expire first");
+        } catch (GeminiTimeoutException e) {
+            assertTrue(GeminiTimeoutException.isDeadline(e));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+    }
+
+    @Test
+    public void waitingRequesterIsToldTheEstimate() {
+        RateLimiter limiter = drained();
+        long[] notices = new long[2];
+        RateLimiter.Requester requester = new RateLimiter.Requester("test", millis -> {
+            notices[millis == 0 ? 1 : 0]++;
+        });
+
+        limiter.acquire(requester, 100, Deadline.none()).complete(OK);
+
+        assertEquals(1, notices[0]);
+        assertEquals(1, notices[1]);
+    }
+}
@@ -0,0 +1,218 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.GeminiClientTest.expectFailure;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Nouveaux essais, disjoncteur et hedging face aux pannes injectées par {@link StubGeminiServer}.
+ */
+public class ResilientCallerTest {
+
+    private static final String TEXT = "# Titre\nUn paragraphe de test.";
+
+    private StubGeminiServer server;
+    private GeminiClient client;
+
+    @Before
+    public void startServer() throws IOException {
+        Metrics.reset();
+        server = new StubGeminiServer(TEXT, 0);
+        client = new GeminiClient(GeminiClient.sharedHttpClient(), "test-key", server.getBaseUrl(), "test-model",
+                Duration.ofSeconds(10));
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    private static ResilientCaller retrying(int maxAttempts, CircuitBreaker breaker) {
+        return new ResilientCaller(new RetryPolicy(maxAttempts, 10, 5_000), breaker, 0, 0);
+    }
+
+    private GeminiResponse call(ResilientCaller caller) {
+        return caller.call(() -> client.generate("sujet", Deadline.none()));
+    }
+
+    @Test
+    public void serverErrorsAreRetried() {
+        server.failNext(2, 503, -1);
+
+        assertEquals(TEXT, call(retrying(3, new CircuitBreaker(10, 1_000))).getText());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, Metrics.get("retry.attempts"));
+    }
+
+    @Test
+    public void retryWaitsForRetryAfter() {
+        server.failNext(1, 429, 1);
+
+        long start = System.nanoTime();
+        assertEquals(TEXT, call(retrying(3, new CircuitBreaker(10, 1_000))).getText());
+
+        assertEquals(2, server.getRequestCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 950);
+    }
+
+    @Test
+    public void retryAfterBeyondMaxDelayFailsAtOnce() {
+        server.failNext(1, 503, 60);
+
+        GeminiException e = expectFailure(() -> call(retrying(3, new CircuitBreaker(10, 1_000))));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        server.failNext(3, 400, -1);
+
+        GeminiException e = expectFailure(() -> call(retrying(3, new CircuitBreaker(10, 1_000))));
+
+        assertEquals(400, e.getStatusCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retriesStopAfterMaxAttempts() {
+        server.failNext(5, 500, -1);
+
+        assertEquals(500, expectFailure(() -> call(retrying(3, new CircuitBreaker(10, 1_000)))).getStatusCode());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void streamIsRetriedBeforeItsFirstChunk() {
+        server.failNext(1, 0, -1);
+        ResilientCaller caller = retrying(3, new CircuitBreaker(10, 1_000));
+        StringBuilder text = new StringBuilder();
+
+        GeminiResponse response = caller.callStreaming(Deadline.none(),
+                () -> client.streamGenerate("sujet", Deadline.none(), text::append), () -> text.length() == 0);
+
+        assertEquals(TEXT, response.getText());
+        assertEquals(TEXT, text.toString());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void breakerOpensThenClosesAfterASuccessfulTrial() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 200);
+        ResilientCaller caller = retrying(1, breaker);
+        server.failNext(2, 500, -1);
+
+        expectFailure(() -> call(caller));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        expectFailure(() -> call(caller));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Open: rejected without reaching the server
+        GeminiException rejected = expectFailure(() -> call(caller));
+        assertEquals(503, rejected.getStatusCode());
+        assertTrue(rejected.getRetryAfterMillis() > 0);
+        assertEquals(2, server.getRequestCount());
+
+        Thread.sleep(250);
+        assertEquals(TEXT, call(caller).getText());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void failedTrialReopensTheBreaker() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 200);
+        ResilientCaller caller = retrying(1, breaker);
+        server.failNext(2, 503, -1);
+
+        expectFailure(() -> call(caller));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(250);
+        expectFailure(() -> call(caller));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 200);
+        ResilientCaller caller = retrying(1, breaker);
+        server.failNext(1, 503, -1);
+        expectFailure(() -> call(caller));
+        Thread.sleep(250);
+
+        server.setLatencyMillis(500);
+        CompletableFuture<GeminiResponse> trial = CompletableFuture.supplyAsync(() -> call(caller));
+        long waitStart = System.nanoTime();
+        while (server.getRequestCount() < 2 && System.nanoTime() - waitStart < 5_000_000_000L) {
+            Thread.sleep(5);
+        }
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(503, expectFailure(() -> call(caller)).getStatusCode());
+
+        assertEquals(TEXT, trial.get(5, TimeUnit.SECONDS).getText());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorsAndQuotaDoNotTripTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 10_000);
+        ResilientCaller caller = retrying(1, breaker);
+        server.failNext(2, 400, -1);
+        expectFailure(() -> call(caller));
+        expectFailure(() -> call(caller));
+        server.failNext(2, 429, -1);
+        expectFailure(() -> call(caller));
+        expectFailure(() -> call(caller));
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void hedgeWinsAgainstASlowRequestAndCancelsIt() throws InterruptedException {
+        server.setLatencyMillis(5);
+        // The hedge delay comes from observed latencies: 20 samples of about 5 ms
+        for (int i = 0; i < 20; i++) {
+            client.generate("échauffement " + i, Deadline.none());
+        }
+        ResilientCaller caller = new ResilientCaller(new RetryPolicy(1, 0, 0), new CircuitBreaker(10, 1_000), 50, 100);
+        server.delayNext(1, 5_000);
+
+        long start = System.nanoTime();
+        assertEquals(TEXT, call(caller).getText());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("hedged call took " + elapsedMillis + " ms", elapsedMillis >= 100 && elapsedMillis < 2_000);
+        assertEquals(1, Metrics.get("hedge.started"));
+        assertEquals(1, Metrics.get("hedge.won"));
+        assertEquals(22, server.getRequestCount());
+        // The slow request is interrupted rather than left to finish in the background
+        long waitStart = System.nanoTime();
+        while (Metrics.get(Metrics.CANCELLED) == 0 && System.nanoTime() - waitStart < 2_000_000_000L) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, Metrics.get(Metrics.CANCELLED));
+    }
+
+    @Test
+    public void noHedgeWithoutEnoughSamples() {
+        ResilientCaller caller = new ResilientCaller(new RetryPolicy(1, 0, 0), new CircuitBreaker(10, 1_000), 50, 10);
+        server.delayNext(1, 300);
+
+        assertEquals(TEXT, call(caller).getText());
+
+        assertEquals(0, Metrics.get("hedge.started"));
+        assertEquals(1, server.getRequestCount());
+    }
+}
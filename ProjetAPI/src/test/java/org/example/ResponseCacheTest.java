@@ -0,0 +1,112 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory() {
+        return folder.getRoot().toPath();
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory())) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void entriesSurviveARestart() {
+        new ResponseCache(10, HOUR, directory(), 1_000_000).put("m", "prompt", "Texte.");
+
+        GenerationResult hit = new ResponseCache(10, HOUR, directory(), 1_000_000).get("m", "prompt");
+
+        assertEquals(CacheOutcome.DISK_HIT, hit.getCacheOutcome());
+        assertEquals("Texte.", hit.getText());
+    }
+
+    @Test
+    public void olderFormatEntriesAreDeletedOnRead() throws IOException {
+        Path file = directory().resolve(ResponseCache.key("m", "prompt") + ".gz");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            byte[] text = "Texte tronqué".getBytes(StandardCharsets.UTF_8);
+            out.writeInt(1);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(text.length);
+            out.write(text);
+        }
+
+        assertNull(new ResponseCache(10, HOUR, directory(), 1_000_000).get("m", "prompt"));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void failedWriteLeavesNoTempFile() throws IOException {
+        // A non-empty directory in the entry's place makes the final move fail
+        Path blocked = directory().resolve(ResponseCache.key("m", "prompt") + ".gz");
+        Files.createDirectories(blocked.resolve("occupied"));
+
+        new ResponseCache(10, HOUR, directory(), 1_000_000).put("m", "prompt", "Texte.");
+
+        assertEquals(List.of(blocked.getFileName().toString()), files());
+    }
+
+    @Test
+    public void evictionSparesTempFiles() throws IOException {
+        Path inProgress = Files.createTempFile(directory(), "autre", ".tmp");
+        ResponseCache cache = new ResponseCache(10, HOUR, directory(), 1);
+
+        cache.put("m", "premier", "Texte un.");
+        cache.put("m", "second", "Texte deux.");
+
+        // Over quota: every entry goes, the other writer's temp file stays
+        assertTrue(Files.exists(inProgress));
+        assertEquals(List.of(inProgress.getFileName().toString()), files());
+    }
+
+    @Test
+    public void staleTempFilesAreRemovedAtStartup() throws IOException {
+        Path stale = Files.createTempFile(directory(), "ancien", ".tmp");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 2 * HOUR));
+        Path recent = Files.createTempFile(directory(), "recent", ".tmp");
+
+        new ResponseCache(10, HOUR, directory(), 1_000_000);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    public void clearRemovesEntriesOnly() throws IOException {
+        ResponseCache cache = new ResponseCache(10, HOUR, directory(), 1_000_000);
+        cache.put("m", "prompt", "Texte.");
+        Path inProgress = Files.createTempFile(directory(), "autre", ".tmp");
+
+        cache.clear();
+
+        assertNull(cache.get("m", "prompt"));
+        assertEquals(List.of(inProgress.getFileName().toString()), files());
+    }
+}
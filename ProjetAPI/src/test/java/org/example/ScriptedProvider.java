@@ -0,0 +1,40 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Answers the queued responses in order, then fails
+final class ScriptedProvider implements ModelProvider {
+    final Deque<GeminiResponse> responses = new ArrayDeque<>();
+    final List<String> prompts = new ArrayList<>();
+    int calls;
+
+    ScriptedProvider then(String text, String finishReason) {
+        responses.add(new GeminiResponse(text, finishReason, 10, 20, 30));
+        return this;
+    }
+
+    @Override
+    public String getModel() {
+        return "test-model";
+    }
+
+    @Override
+    public synchronized GeminiResponse generate(String prompt, Deadline deadline) {
+        calls++;
+        prompts.add(prompt);
+        return responses.remove();
+    }
+
+    @Override
+    public GeminiResponse streamGenerate(String prompt, Deadline deadline, Consumer<String> onText) {
+        GeminiResponse response = generate(prompt, deadline);
+        if (!response.getText().isEmpty()) {
+            onText.accept(response.getText());
+        }
+        return response;
+    }
+}
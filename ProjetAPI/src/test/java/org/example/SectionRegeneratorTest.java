@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.example.GeminiClientTest.expectFailure;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SectionRegeneratorTest {
+
+    private static final String DOCUMENT = "# Énergie\n"
+            + "\n"
+            + "## Solaire\n"
+            + "Des panneaux.\n"
+            + "\n"
+            + "## Éolien\n"
+            + "Des turbines.\n";
+
+    private static final int SOLAR = 2;
+
+    private MarkdownDocument document;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+        document = MarkdownParser.parse(DOCUMENT);
+    }
+
+    private static List<String> texts(List<MarkdownDocument.Block> blocks) {
+        List<String> texts = new ArrayList<>();
+        for (MarkdownDocument.Block block : blocks) {
+            texts.add(block.getText());
+        }
+        return texts;
+    }
+
+    private List<MarkdownDocument.Block> regenerate(ScriptedProvider provider) {
+        SectionRegenerator regenerator = new SectionRegenerator(
+                new GenerationService(provider, new ResponseCache(100, 60_000, null, 0)));
+        return regenerator.regenerate(document, SOLAR, "Article", "énergie", RateLimiter.Requester.DEFAULT);
+    }
+
+    @Test
+    public void completeAnswerReplacesTheSectionUnderItsHeading() {
+        ScriptedProvider provider = new ScriptedProvider().then("### Le solaire\nDes **cellules** neuves.", "STOP");
+
+        List<MarkdownDocument.Block> section = regenerate(provider);
+
+        assertEquals(List.of("Solaire", "Des cellules neuves.", ""), texts(section));
+        assertEquals(2, section.get(0).getLevel());
+        assertEquals(List.of("Énergie", "", "Solaire", "Des cellules neuves.", "", "Éolien", "Des turbines."),
+                texts(document.replace(SOLAR, document.sectionEnd(SOLAR), section).getBlocks()));
+        assertTrue(provider.prompts.get(0).contains("Des panneaux."));
+        assertEquals(1, Metrics.get(SectionRegenerator.REGENERATED));
+    }
+
+    @Test
+    public void cacheIsSkipped() {
+        ScriptedProvider provider = new ScriptedProvider().then("Première.", "STOP").then("Seconde.", "STOP");
+
+        regenerate(provider);
+
+        assertEquals("Seconde.", regenerate(provider).get(1).getText());
+        assertEquals(2, provider.calls);
+    }
+
+    private void assertRejected(String text, String finishReason) {
+        List<MarkdownDocument.Block> before = new ArrayList<>(document.getBlocks());
+
+        GeminiException e = expectFailure(() -> regenerate(new ScriptedProvider().then(text, finishReason)));
+
+        assertTrue(e.getMessage(), e.getMessage().contains("Gemini"));
+        assertEquals(before, document.getBlocks());
+        assertEquals(0, Metrics.get(SectionRegenerator.REGENERATED));
+        assertEquals(1, Metrics.get(SectionRegenerator.REJECTED));
+        Metrics.reset();
+    }
+
+    @Test
+    public void truncatedAnswerIsRejected() {
+        assertRejected("## Solaire\nDes panneaux qui", "MAX_TOKENS");
+    }
+
+    @Test
+    public void blockedAnswerIsRejected() {
+        assertRejected("", "SAFETY");
+        assertRejected("## Solaire\nUn début", "RECITATION");
+    }
+
+    @Test
+    public void emptyAnswersAreRejected() {
+        assertRejected("", "STOP");
+        assertRejected(" \n\n", "STOP");
+        assertRejected(GeminiResponseDecoder.NO_CANDIDATES, null);
+        assertRejected(GeminiResponseDecoder.NO_TEXT_PART, "STOP");
+    }
+
+    @Test
+    public void headingAloneIsRejected() {
+        assertRejected("## Solaire\n\n", "STOP");
+    }
+}
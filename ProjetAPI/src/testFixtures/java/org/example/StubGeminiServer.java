@@ -0,0 +1,241 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Faux serveur Gemini local, sans clé ni quota, pour les tests, les essais de charge et les benchmarks.
+ * Il répond aux routes :generateContent et :streamGenerateContent avec un texte fixe,
+ * après une latence simulée.
+ * Des pannes peuvent être injectées : erreurs HTTP (avec Retry-After), connexions coupées
+ * requêtes anormalement lentes et flux qui s'arrêtent, pour éprouver les nouveaux essais,
+ * le disjoncteur, le hedging et les délais.
+ */
+public class StubGeminiServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount = new AtomicLong();
+    // Client address and port of every exchange: one per TCP connection
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private volatile String responseText;
+    private volatile long latencyMillis;
+    private volatile int streamChunks = 8;
+
+    // Fault injection
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+    private volatile int failureStatus = 503;
+    private volatile long retryAfterSeconds = -1;
+    private volatile double failureRate;
+    private final AtomicInteger slowRemaining = new AtomicInteger();
+    private volatile double slowRate;
+    private volatile long slowExtraMillis;
+    private volatile long streamStallMillis;
+
+    public StubGeminiServer(String responseText, long latencyMillis) throws IOException {
+        this.responseText = responseText;
+        this.latencyMillis = latencyMillis;
+        // Without TCP_NODELAY, headers and body go out in two segments and delayed ACKs add ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-gemini");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** URL à passer comme textgen.api.baseUrl. */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v1beta/models/";
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** Connexions TCP distinctes ouvertes par les clients depuis le démarrage. */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public void setResponseText(String responseText) {
+        this.responseText = responseText;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setStreamChunks(int streamChunks) {
+        this.streamChunks = Math.max(1, streamChunks);
+    }
+
+    /**
+     * Les count prochaines requêtes échouent avec ce code HTTP ; 0 coupe la connexion sans réponse.
+     *
+     * @param retryAfterSeconds valeur de l'en-tête Retry-After, ou -1 pour ne pas l'envoyer
+     */
+    public void failNext(int count, int status, long retryAfterSeconds) {
+        this.failureStatus = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.failuresRemaining.set(count);
+    }
+
+    /** Fraction des requêtes (0 à 1) qui échouent avec ce code HTTP, en plus de failNext. */
+    public void setFailureRate(double rate, int status) {
+        this.failureStatus = status;
+        this.failureRate = rate;
+    }
+
+    /** Fraction des requêtes (0 à 1) dont la réponse est retardée de extraMillis. */
+    public void setSlowRequests(double rate, long extraMillis) {
+        this.slowRate = rate;
+        this.slowExtraMillis = extraMillis;
+    }
+
+    /** Les count prochaines requêtes sont retardées de extraMillis. */
+    public void delayNext(int count, long extraMillis) {
+        this.slowExtraMillis = extraMillis;
+        this.slowRemaining.set(count);
+    }
+
+    /** Les flux s'arrêtent stallMillis après leur premier fragment, avant de reprendre (0 = jamais). */
+    public void setStreamStall(long stallMillis) {
+        this.streamStallMillis = stallMillis;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        connections.add(exchange.getRemoteAddress());
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        String path = exchange.getRequestURI().getPath();
+        try {
+            if (injectFault(exchange)) {
+                return;
+            }
+            if (path.endsWith(":streamGenerateContent")) {
+                handleStream(exchange);
+            } else if (path.endsWith(":generateContent")) {
+                sleep(latencyMillis);
+                send(exchange, 200, "application/json", responseJson(responseText, true).toString());
+            } else {
+                send(exchange, 404, "application/json", "{\"error\":{\"code\":404,\"message\":\"Not found\"}}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Returns true when the exchange has been answered with a fault
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        boolean fail = failuresRemaining.getAndUpdate(n -> Math.max(0, n - 1)) > 0
+                || (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate);
+        if (fail) {
+            int status = failureStatus;
+            if (status == 0) {
+                return true; // closed without a response: the client sees an I/O error
+            }
+            if (retryAfterSeconds >= 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+            }
+            send(exchange, status, "application/json", "{\"error\":{\"code\":" + status
+                    + ",\"message\":\"Injected failure\",\"status\":\"UNAVAILABLE\"}}");
+            return true;
+        }
+        if (slowRemaining.getAndUpdate(n -> Math.max(0, n - 1)) > 0
+                || (slowRate > 0 && ThreadLocalRandom.current().nextDouble() < slowRate)) {
+            sleep(slowExtraMillis);
+        }
+        return false;
+    }
+
+    private void handleStream(HttpExchange exchange) throws IOException {
+        String text = responseText;
+        int chunks = Math.min(streamChunks, Math.max(1, text.length()));
+        long delay = latencyMillis / chunks;
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            int chunkSize = (text.length() + chunks - 1) / chunks;
+            for (int start = 0; start < text.length(); start += chunkSize) {
+                sleep(delay);
+                String chunk = text.substring(start, Math.min(text.length(), start + chunkSize));
+                boolean last = start + chunkSize >= text.length();
+                out.write(("data: " + responseJson(chunk, last) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (start == 0) {
+                    sleep(streamStallMillis);
+                }
+            }
+        }
+    }
+
+    static JSONObject responseJson(String text, boolean last) {
+        JSONObject part = new JSONObject().put("text", text);
+        JSONObject content = new JSONObject()
+                .put("parts", new JSONArray().put(part))
+                .put("role", "model");
+        JSONObject candidate = new JSONObject().put("content", content).put("index", 0);
+        JSONObject json = new JSONObject().put("candidates", new JSONArray().put(candidate));
+        if (last) {
+            candidate.put("finishReason", "STOP");
+            int tokens = Math.max(1, text.length() / 4);
+            json.put("usageMetadata", new JSONObject()
+                    .put("promptTokenCount", 12)
+                    .put("candidatesTokenCount", tokens)
+                    .put("totalTokenCount", 12 + tokens));
+        }
+        return json;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}